@@ -0,0 +1,50 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.codeswarm.bytesize.ByteSizeFormat;
+import org.codeswarm.bytesize.ByteSizeFormatBuilder;
+import org.codeswarm.bytesize.ByteSizeUnits;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ByteSizeFormatBuilder#build()} for a per-request locale,
+ * with the default format cache and with caching turned off.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class BuildBenchmark {
+
+  @Param( { "en", "sk", "eo" } )
+  public String locale;
+
+  Locale resolvedLocale;
+
+  @Setup
+  public void setUp() {
+    resolvedLocale = Locale.forLanguageTag( locale );
+  }
+
+  @Benchmark
+  public ByteSizeFormat cached() {
+    return new ByteSizeFormatBuilder()
+      .locale( resolvedLocale )
+      .unitSystem( ByteSizeUnits.IEC )
+      .build();
+  }
+
+  @Benchmark
+  public ByteSizeFormat uncached() {
+    return new ByteSizeFormatBuilder()
+      .locale( resolvedLocale )
+      .unitSystem( ByteSizeUnits.IEC )
+      .cache( null )
+      .build();
+  }
+
+}
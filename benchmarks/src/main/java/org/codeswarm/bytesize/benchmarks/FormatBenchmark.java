@@ -0,0 +1,22 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link org.codeswarm.bytesize.ByteSizeFormat#format} with an automatically-chosen unit.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FormatBenchmark {
+
+  @Benchmark
+  public String format( SizeSuite suite ) {
+    return suite.format.format( suite.sizes[suite.next()], suite.length );
+  }
+
+}
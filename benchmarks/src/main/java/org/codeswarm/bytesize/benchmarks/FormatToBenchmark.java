@@ -0,0 +1,32 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link org.codeswarm.bytesize.ByteSizeFormat#formatTo} into a reused buffer.
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the steady-state
+ * allocation per call, which should stay near zero.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FormatToBenchmark {
+
+  @State( Scope.Thread )
+  public static class Buffer {
+    final StringBuilder out = new StringBuilder( 64 );
+  }
+
+  @Benchmark
+  public int formatTo( SizeSuite suite, Buffer buffer ) {
+    StringBuilder out = buffer.out;
+    out.setLength( 0 );
+    suite.format.formatTo( suite.sizes[suite.next()], suite.length, out );
+    return out.length();
+  }
+
+}
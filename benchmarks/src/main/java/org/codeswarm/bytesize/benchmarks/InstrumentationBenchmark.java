@@ -0,0 +1,68 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.codeswarm.bytesize.ByteSize;
+import org.codeswarm.bytesize.ByteSizeFormatListener;
+import org.codeswarm.bytesize.ByteSizeFormatMetrics;
+import org.codeswarm.bytesize.ByteSizeInstrumentation;
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link org.codeswarm.bytesize.ByteSizeFormat#parse} and
+ * {@link org.codeswarm.bytesize.ByteSizeFormat#formatTo} with no listener, a listener
+ * that does nothing (the cost of reading the clock), and {@link ByteSizeFormatMetrics}.
+ * With {@code listener=none} the scores should match {@link ParseBenchmark} and
+ * {@link FormatToBenchmark}.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class InstrumentationBenchmark {
+
+  @State( Scope.Benchmark )
+  public static class Listener {
+
+    @Param({ "none", "noop", "metrics" })
+    public String listener;
+
+    @Setup
+    public void setUp() {
+      if ( "noop".equals( listener ) ) {
+        ByteSizeInstrumentation.setListener( new ByteSizeFormatListener() {} );
+      } else if ( "metrics".equals( listener ) ) {
+        ByteSizeInstrumentation.setListener( new ByteSizeFormatMetrics() );
+      } else {
+        ByteSizeInstrumentation.setListener( null );
+      }
+    }
+
+    @TearDown
+    public void tearDown() {
+      ByteSizeInstrumentation.setListener( null );
+    }
+
+  }
+
+  @State( Scope.Thread )
+  public static class Buffer {
+    final StringBuilder out = new StringBuilder( 64 );
+  }
+
+  @Benchmark
+  public ByteSize parse( Listener listener, SizeSuite suite ) throws ParseException {
+    return suite.format.parse( suite.strings[suite.next()] );
+  }
+
+  @Benchmark
+  public int formatTo( Listener listener, SizeSuite suite, Buffer buffer ) {
+    StringBuilder out = buffer.out;
+    out.setLength( 0 );
+    suite.format.formatTo( suite.sizes[suite.next()], suite.length, out );
+    return out.length();
+  }
+
+}
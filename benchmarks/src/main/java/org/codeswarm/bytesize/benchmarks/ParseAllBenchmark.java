@@ -0,0 +1,66 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.codeswarm.bytesize.ByteSizeColumns;
+import org.codeswarm.bytesize.ByteSizeFormat;
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+import org.codeswarm.bytesize.ByteSizeFormatBuilder;
+import org.codeswarm.bytesize.ByteSizeUnits;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+
+/**
+ * {@link ByteSizeColumns#parseAll} of a column of a million sizes, with pools of
+ * 1 to 8 threads. The score is columns per second; multiply by a million for
+ * values per second. With enough cores it should grow close to linearly with
+ * {@code threads}.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ParseAllBenchmark {
+
+  static final int VALUES = 1 << 20;
+
+  @Param({ "1", "2", "4", "8" })
+  public int threads;
+
+  ForkJoinPool pool;
+  ByteSizeFormat format;
+  String[] texts;
+  long[] out;
+
+  @Setup
+  public void setUp() {
+    pool = new ForkJoinPool( threads );
+    format = new ByteSizeFormatBuilder().locale( Locale.US ).unitSystem( ByteSizeUnits.SI ).build();
+    Random random = new Random( 42 );
+    texts = new String[VALUES];
+    for ( int i = 0; i < VALUES; i++ ) {
+      texts[i] = format.format( byteSize( random.nextLong() >>> ( 1 + random.nextInt( 63 ) ) ),
+        WordLength.ABBREVIATION );
+    }
+    out = new long[VALUES];
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public BitSet parseAll() {
+    return ByteSizeColumns.parseAll( Arrays.asList( texts ), format, out, pool );
+  }
+
+}
@@ -0,0 +1,24 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.codeswarm.bytesize.ByteSize;
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link org.codeswarm.bytesize.ByteSizeFormat#parse} of strings produced by the same format.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ParseBenchmark {
+
+  @Benchmark
+  public ByteSize parse( SizeSuite suite ) throws ParseException {
+    return suite.format.parse( suite.strings[suite.next()] );
+  }
+
+}
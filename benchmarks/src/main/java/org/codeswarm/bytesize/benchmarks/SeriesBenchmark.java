@@ -0,0 +1,70 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.codeswarm.bytesize.ByteSizeSeriesReader;
+import org.codeswarm.bytesize.ByteSizeSeriesWriter;
+import org.codeswarm.bytesize.ExactByteSize;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range queries on a series file of sixteen million sizes that drift like an
+ * object's size history. {@code decodeAll} reads the whole range, for comparison
+ * with {@code sum} and {@code max}, which decode only the blocks at each end.
+ * The file is the same on every run, 33,206,277 bytes or 1.98 bytes per size;
+ * results/series-1.1-SNAPSHOT.txt records it with the timings.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SeriesBenchmark {
+
+  static final int VALUES = 1 << 24;
+
+  Path file;
+  ByteSizeSeriesReader reader;
+  long[] out = new long[VALUES - 2000];
+
+  @Setup
+  public void setUp() throws IOException {
+    file = Files.createTempFile( "sizes", ".series" );
+    Files.delete( file );
+    Random random = new Random( 42 );
+    try ( ByteSizeSeriesWriter writer = new ByteSizeSeriesWriter( file ) ) {
+      long n = 1L << 30;
+      for ( int i = 0; i < VALUES; i++ ) {
+        writer.append( n += random.nextInt( 4097 ) - 2048 );
+      }
+    }
+    reader = new ByteSizeSeriesReader( file );
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete( file );
+  }
+
+  @Benchmark
+  public ExactByteSize sum() {
+    return reader.sum( 1000, VALUES - 1000 );
+  }
+
+  @Benchmark
+  public ExactByteSize max() {
+    return reader.max( 1000, VALUES - 1000 );
+  }
+
+  @Benchmark
+  public long[] decodeAll() {
+    reader.read( 1000, out );
+    return out;
+  }
+
+}
@@ -0,0 +1,90 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.codeswarm.bytesize.*;
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+
+/**
+ * <p>Shared fixture for the benchmarks: a format for every combination
+ * of locale, unit system and word length, and a fixed set of sizes
+ * spread over every order of magnitude from bytes to exabytes.</p>
+ *
+ * <p>Benchmarks step through the samples with {@link #next()} so that
+ * no single value (and no single unit) dominates a measurement.</p>
+ */
+@State( Scope.Thread )
+public class SizeSuite {
+
+  static final int SAMPLES = 1024;
+
+  @Param({ "en", "sk", "eo" })
+  public String locale;
+
+  @Param({ "SI", "IEC" })
+  public String unitSystem;
+
+  @Param({ "FULL", "ABBREVIATION" })
+  public String wordLength;
+
+  /** {@code true} for {@link ExactByteSize} inputs, {@code false} for double-valued inputs. */
+  @Param({ "true", "false" })
+  public boolean exact;
+
+  public ByteSizeFormat format;
+  public ByteSizeUnitSystem system;
+  public WordLength length;
+  public ByteSize[] sizes;
+  public String[] strings;
+
+  private int cursor;
+
+  @Setup
+  public void setUp() {
+    system = unitSystem( unitSystem );
+    length = WordLength.valueOf( wordLength );
+    format = new ByteSizeFormatBuilder()
+      .locale( Locale.forLanguageTag( locale ) )
+      .unitSystem( system )
+      .build();
+    sizes = sizes( exact, new Random( 42 ) );
+    strings = new String[SAMPLES];
+    for ( int i = 0; i < SAMPLES; i++ ) {
+      strings[i] = format.format( sizes[i], length );
+    }
+  }
+
+  /**
+   * @return Index of the next sample, cycling through all of them.
+   */
+  public int next() {
+    int i = cursor;
+    cursor = ( i + 1 ) & ( SAMPLES - 1 );
+    return i;
+  }
+
+  static ByteSizeUnitSystem unitSystem( String name ) {
+    if ( "SI".equals( name ) ) return ByteSizeUnits.SI;
+    if ( "IEC".equals( name ) ) return ByteSizeUnits.IEC;
+    throw new IllegalArgumentException( name );
+  }
+
+  static ByteSize[] sizes( boolean exact, Random random ) {
+    ByteSize[] sizes = new ByteSize[SAMPLES];
+    for ( int i = 0; i < SAMPLES; i++ ) {
+      // uniform over bit length, so every unit gets its share of samples
+      int bits = 1 + random.nextInt( 62 );
+      long n = ( random.nextLong() >>> ( 64 - bits ) ) | ( 1L << ( bits - 1 ) );
+      sizes[i] = exact ? byteSize( n ) : byteSize( (double) n + random.nextDouble() );
+    }
+    return sizes;
+  }
+
+}
@@ -0,0 +1,68 @@
+package org.codeswarm.bytesize.benchmarks;
+
+import org.codeswarm.bytesize.ByteSize;
+import org.codeswarm.bytesize.ByteSizeFormats;
+import org.codeswarm.bytesize.ByteSizeUnit;
+import org.codeswarm.bytesize.ByteSizeUnitSystem;
+import org.codeswarm.bytesize.ByteSizeUnits;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit selection, unit conversion and comparison, which do not depend
+ * on the locale or word length and so use a smaller fixture than {@link SizeSuite}.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class UnitBenchmark {
+
+  @State( Scope.Thread )
+  public static class Sizes {
+
+    @Param({ "SI", "IEC" })
+    public String unitSystem;
+
+    @Param({ "true", "false" })
+    public boolean exact;
+
+    ByteSize[] sizes;
+    ByteSizeUnit unit;
+    ByteSizeUnitSystem system;
+    int cursor;
+
+    @Setup
+    public void setUp() {
+      system = SizeSuite.unitSystem( unitSystem );
+      unit = system == ByteSizeUnits.SI ? ByteSizeUnits.MB : ByteSizeUnits.MiB;
+      sizes = SizeSuite.sizes( exact, new java.util.Random( 42 ) );
+    }
+
+    int next() {
+      int i = cursor;
+      cursor = ( i + 1 ) & ( SizeSuite.SAMPLES - 1 );
+      return i;
+    }
+
+  }
+
+  @Benchmark
+  public ByteSizeUnit determineReasonableUnit( Sizes s ) {
+    return ByteSizeFormats.determineReasonableUnit( s.sizes[s.next()], s.system );
+  }
+
+  @Benchmark
+  public double numberOfBytesInUnit( Sizes s ) {
+    return s.sizes[s.next()].numberOfBytes( s.unit );
+  }
+
+  @Benchmark
+  public int compareTo( Sizes s ) {
+    int i = s.next();
+    return s.sizes[i].compareTo( s.sizes[( i + 1 ) & ( SizeSuite.SAMPLES - 1 )] );
+  }
+
+}
@@ -1,31 +1,163 @@
 package org.codeswarm.bytesize;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.util.Collection;
+import java.util.Locale;
 import java.util.ResourceBundle;
 
 public abstract class AbstractByteSizeFormat implements ByteSizeFormat {
 
+  /** Staging buffer for writing to an {@link Appendable} that is not a {@link StringBuilder}. */
+  private static final ThreadLocal<StringBuilder> APPENDABLE_SCRATCH =
+    new ThreadLocal<StringBuilder>() {
+      protected StringBuilder initialValue() {
+        return new StringBuilder();
+      }
+    };
+
+  /**
+   * Called once per format or parse operation. {@link NumberFormat} is not
+   * thread-safe, so a subclass that is to be used concurrently must not return
+   * the same instance to different threads.
+   */
   protected abstract NumberFormat getNumberFormat();
 
+  /**
+   * Called once per format or parse operation, like {@link #getUnits()}, so
+   * the words may differ from one call to the next.
+   */
   protected abstract ResourceBundle getResourceBundle();
 
   protected abstract Collection<ByteSizeUnit> getUnits();
 
+  /**
+   * Called once per operation that chooses a unit.
+   */
   protected abstract ByteSizeUnitSystem getUnitSystem();
 
   public String format( ByteSize byteSize, WordLength wordLength ) {
-    ByteSizeUnit unit = ByteSizeFormats.determineReasonableUnit( byteSize, getUnitSystem() );
+    ByteSizeUnit unit = selectUnit( byteSize );
     return format( byteSize, unit, wordLength );
   }
 
   public String format( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength ) {
-    return ByteSizeFormats.format( byteSize, unit, getNumberFormat(), wordLength, getResourceBundle() );
+    StringBuilder out = new StringBuilder();
+    formatTo( byteSize, unit, wordLength, out );
+    return out.toString();
+  }
+
+  public void formatTo( ByteSize byteSize, WordLength wordLength, StringBuilder out ) {
+    ByteSizeUnit unit = selectUnit( byteSize );
+    formatTo( byteSize, unit, wordLength, out );
+  }
+
+  /**
+   * Writes directly into {@code out}; apart from the number formatting
+   * done by {@link #getNumberFormat()}, this does not allocate.
+   */
+  public void formatTo( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength, StringBuilder out ) {
+    ByteSizeFormatListener listener = ByteSizeInstrumentation.listener;
+    long begin = listener == null ? 0 : System.nanoTime();
+    NumberFormat numberFormat = getNumberFormat();
+    ByteSizeFormats.formatTo( byteSize, unit, numberFormat, getDecimalRenderer( numberFormat ),
+      wordLength, getUnitVocabulary(), out );
+    if ( listener != null ) {
+      listener.formatted( getLocale(), System.nanoTime() - begin );
+    }
+  }
+
+  public void formatTo( ByteSize byteSize, WordLength wordLength, Appendable out )
+      throws IOException {
+    ByteSizeUnit unit = selectUnit( byteSize );
+    formatTo( byteSize, unit, wordLength, out );
+  }
+
+  public void formatTo( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength, Appendable out )
+      throws IOException {
+    if ( out instanceof StringBuilder ) {
+      formatTo( byteSize, unit, wordLength, (StringBuilder) out );
+      return;
+    }
+    StringBuilder buffer = APPENDABLE_SCRATCH.get();
+    buffer.setLength( 0 );
+    formatTo( byteSize, unit, wordLength, buffer );
+    out.append( buffer );
+  }
+
+  /**
+   * Takes the words for "per second" from {@link #getResourceBundle()}.
+   */
+  public void formatTo( ByteRate rate, WordLength wordLength, StringBuilder out ) {
+    formatTo( rate.perSecond(), wordLength, out );
+    ByteSizeFormats.appendPerSecond( wordLength, getResourceBundle(), out );
   }
 
   public ByteSize parse( String s ) throws ParseException {
-    return ByteSizeFormats.parse( s, getNumberFormat(), getUnits(), getResourceBundle() );
+    ParsePosition position = new ParsePosition( 0 );
+    ByteSize byteSize = parse( s, 0, s.length(), position );
+    if ( byteSize == null ) {
+      throw new ParseException( s, position.getErrorIndex() );
+    }
+    return byteSize;
+  }
+
+  public ByteSize parse( CharSequence s, int start, int end, ParsePosition position ) {
+    ByteSizeFormatListener listener = ByteSizeInstrumentation.listener;
+    long begin = listener == null ? 0 : System.nanoTime();
+    NumberFormat numberFormat = getNumberFormat();
+    ByteSize byteSize = ByteSizeFormats.parse( s, start, end, numberFormat, getDecimalScanner( numberFormat ),
+      getUnitVocabulary(), position );
+    if ( listener != null ) {
+      ByteSizeInstrumentation.reportParse( listener, getLocale(), s, start, end,
+        byteSize != null, position.getErrorIndex(), System.nanoTime() - begin );
+    }
+    return byteSize;
+  }
+
+  /**
+   * @return The locale reported to the {@link ByteSizeFormatListener}; by default,
+   * that of {@link #getResourceBundle()}, which may be a parent of the requested locale.
+   */
+  Locale getLocale() {
+    return getResourceBundle().getLocale();
+  }
+
+  /**
+   * Inspecting the number format costs more than the renderer saves on one
+   * call, so formats only have one if they can create it once.
+   *
+   * @param numberFormat The result of {@link #getNumberFormat()} for this operation.
+   * @return A renderer equivalent to {@code numberFormat}, or {@code null}.
+   */
+  DecimalRenderer getDecimalRenderer( NumberFormat numberFormat ) {
+    return null;
+  }
+
+  /**
+   * @param numberFormat The result of {@link #getNumberFormat()} for this operation.
+   * @return A scanner equivalent to {@code numberFormat}, or {@code null}.
+   */
+  DecimalScanner getDecimalScanner( NumberFormat numberFormat ) {
+    return DecimalScanner.of( numberFormat );
+  }
+
+  /**
+   * Looks up {@link #getUnitSystem()} on every call, like {@link #getUnitVocabulary()}.
+   */
+  ByteSizeUnit selectUnit( ByteSize byteSize ) {
+    return UnitThresholds.select( getUnitSystem(), byteSize );
+  }
+
+  /**
+   * Compiles the words of {@link #getUnits()} and {@link #getResourceBundle()} on
+   * every call, since a subclass may return different ones each time; formats
+   * whose units and words are fixed compile them once instead.
+   */
+  UnitVocabulary getUnitVocabulary() {
+    return UnitVocabulary.compile( getUnits(), getResourceBundle() );
   }
 
 }
@@ -0,0 +1,99 @@
+package org.codeswarm.bytesize;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+
+/**
+ * <p>The state that one thread needs to parse many sizes with one format,
+ * and to reduce each to a number of bytes.</p>
+ *
+ * <p>For a format that {@link ByteSizeColumns#canBypass} allows, each parser
+ * parses with the format's scanner and vocabulary and its own copy of the
+ * number format, made from a prototype that {@link #prototypeOf} copies on the
+ * calling thread. Any other format, including a subclass of
+ * {@link AbstractByteSizeFormat} that may override {@code parse}, is called
+ * directly and must be safe for concurrent use.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+final class BulkParser {
+
+  private final ByteSizeFormat format;
+  private final NumberFormat numberFormat;
+  private final DecimalScanner scanner;
+  private final UnitVocabulary vocabulary;
+  private final ParsePosition position = new ParsePosition( 0 );
+
+  /** The number of bytes, after {@link #parse} has returned {@code true}. */
+  long bytes;
+
+  /**
+   * @param prototype The result of {@link #prototypeOf} for {@code format}.
+   */
+  BulkParser( ByteSizeFormat format, NumberFormat prototype ) {
+    this.format = format;
+    if ( prototype != null ) {
+      AbstractByteSizeFormat abstractFormat = (AbstractByteSizeFormat) format;
+      synchronized ( prototype ) {
+        numberFormat = (NumberFormat) prototype.clone();
+      }
+      scanner = abstractFormat.getDecimalScanner( numberFormat );
+      vocabulary = abstractFormat.getUnitVocabulary();
+    } else {
+      numberFormat = null;
+      scanner = null;
+      vocabulary = null;
+    }
+  }
+
+  /**
+   * @return A copy of the number format of {@code format}, from which each
+   * parser makes its own copy; or {@code null} if {@code format} is called directly.
+   */
+  static NumberFormat prototypeOf( ByteSizeFormat format ) {
+    if ( ByteSizeColumns.canBypass( format ) ) {
+      return (NumberFormat) ( (AbstractByteSizeFormat) format ).getNumberFormat().clone();
+    }
+    return null;
+  }
+
+  /**
+   * Parses {@code s[start, end)} whole. Approximate sizes are rounded to the nearest byte.
+   *
+   * @return Whether it is a size that fits in a long, which is then in {@link #bytes}.
+   */
+  boolean parse( CharSequence s, int start, int end ) {
+    position.setIndex( start );
+    position.setErrorIndex( -1 );
+    ByteSize byteSize = numberFormat != null
+      ? ByteSizeFormats.parse( s, start, end, numberFormat, scanner, vocabulary, position )
+      : format.parse( s, start, end, position );
+    // rounded as by the column reader
+    if ( byteSize == null || ! ByteSizeColumnReader.isLong( byteSize ) ) {
+      return false;
+    }
+    bytes = ByteSizeColumnReader.longValue( byteSize );
+    return true;
+  }
+
+  /**
+   * Parses the UTF-8 text {@code bytes[start, end)}.
+   *
+   * @param text A view of all of {@code bytes}, so that ASCII text is parsed in place.
+   * @see #parse(CharSequence, int, int)
+   */
+  boolean parse( ByteBufferText text, ByteBuffer bytes, int start, int end ) {
+    if ( ByteBufferText.isAscii( bytes, start, end ) ) {
+      return parse( text, start, end );
+    }
+    ByteBuffer region = bytes.duplicate();
+    ( (Buffer) region ).limit( end );
+    ( (Buffer) region ).position( start );
+    String decoded = StandardCharsets.UTF_8.decode( region ).toString();
+    return parse( decoded, 0, decoded.length() );
+  }
+
+}
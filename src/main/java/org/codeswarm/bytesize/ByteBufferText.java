@@ -0,0 +1,126 @@
+package org.codeswarm.bytesize;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.text.ParsePosition;
+
+/**
+ * <p>A read-only view of ASCII bytes as characters, so that text in a
+ * {@link ByteBuffer} can be parsed without being copied.</p>
+ *
+ * <p>Index {@code i} of the view is byte {@code i} of the buffer,
+ * regardless of the buffer's position.</p>
+ */
+final class ByteBufferText implements CharSequence {
+
+  private final ByteBuffer bytes;
+  private final int offset;
+  private final int length;
+
+  ByteBufferText( ByteBuffer bytes, int offset, int length ) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public char charAt( int index ) {
+    return (char) ( bytes.get( offset + index ) & 0xff );
+  }
+
+  public CharSequence subSequence( int start, int end ) {
+    return new ByteBufferText( bytes, offset + start, end - start );
+  }
+
+  public String toString() {
+    char[] chars = new char[length];
+    for ( int i = 0; i < length; i++ ) {
+      chars[i] = charAt( i );
+    }
+    return new String( chars );
+  }
+
+  static boolean isAscii( ByteBuffer bytes, int start, int end ) {
+    for ( int i = start; i < end; i++ ) {
+      if ( bytes.get( i ) < 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses UTF-8 text in {@code bytes[start, end)}. ASCII text is parsed in place;
+   * anything else is decoded first. Indices in {@code position} are byte indices.
+   */
+  static ByteSize parse( ByteSizeFormat format, ByteBuffer bytes, int start, int end, ParsePosition position ) {
+    if ( isAscii( bytes, start, end ) ) {
+      return format.parse( new ByteBufferText( bytes, 0, end ), start, end, position );
+    }
+    ByteBuffer region = bytes.duplicate();
+    ( (Buffer) region ).limit( end );
+    ( (Buffer) region ).position( start );
+    int[] byteIndex = new int[end - start + 1];
+    String text = decode( region, byteIndex );
+    int index = position.getIndex();
+    ByteSize byteSize = format.parse( text, 0, text.length(), position );
+    if ( byteSize == null ) {
+      int errorIndex = Math.max( position.getErrorIndex(), 0 );
+      position.setIndex( index );
+      position.setErrorIndex( byteIndex[Math.min( errorIndex, text.length() )] );
+    } else {
+      position.setIndex( end );
+    }
+    return byteSize;
+  }
+
+  /**
+   * Decodes the remaining UTF-8 bytes of {@code bytes}, replacing each malformed
+   * sequence with U+FFFD as {@link java.nio.charset.Charset#decode} does.
+   *
+   * @param byteIndex Receives the index in {@code bytes} of each char of the result,
+   *                  and then the index of the end; at least one longer than the
+   *                  number of bytes remaining.
+   */
+  static String decode( ByteBuffer bytes, int[] byteIndex ) {
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    CharBuffer out = CharBuffer.allocate( bytes.remaining() );
+    while ( true ) {
+      int from = out.position();
+      int b = bytes.position();
+      CoderResult result = decoder.decode( bytes, out, true );
+      for ( int i = from; i < out.position(); i++ ) {
+        byteIndex[i] = b;
+        char c = out.get( i );
+        if ( c < 0x80 ) {
+          b += 1;
+        } else if ( c < 0x800 ) {
+          b += 2;
+        } else if ( Character.isHighSurrogate( c ) ) {
+          // the low surrogate starts at the same byte; the pair takes four
+          byteIndex[++i] = b;
+          b += 4;
+        } else {
+          b += 3;
+        }
+      }
+      if ( ! result.isError() ) {
+        break;
+      }
+      byteIndex[out.position()] = bytes.position();
+      out.put( '\uFFFD' );
+      ( (Buffer) bytes ).position( bytes.position() + result.length() );
+    }
+    byteIndex[out.position()] = bytes.position();
+    ( (Buffer) out ).flip();
+    return out.toString();
+  }
+
+}
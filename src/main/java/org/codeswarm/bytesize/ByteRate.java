@@ -0,0 +1,110 @@
+package org.codeswarm.bytesize;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A rate of data transfer, such as 12.3 MiB per second.</p>
+ *
+ * <p>The rate is held as an approximate number of bytes per second and can be
+ * read back per any {@link TimeUnit}, in bytes or in bits. Format one with
+ * {@link ByteSizeFormat#format(ByteRate, ByteSizeFormat.WordLength)}, which
+ * chooses the unit in the same way as for a {@link ByteSize}.</p>
+ *
+ * <p>Instances are immutable.</p>
+ *
+ * @see ByteRateMeter
+ */
+public final class ByteRate implements Comparable<ByteRate> {
+
+  public static final ByteRate ZERO = new ByteRate( 0 );
+
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos( 1 );
+
+  private final double bytesPerSecond;
+
+  private ByteRate( double bytesPerSecond ) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  public static ByteRate bytesPerSecond( double bytesPerSecond ) {
+    return new ByteRate( bytesPerSecond );
+  }
+
+  public static ByteRate bitsPerSecond( double bitsPerSecond ) {
+    return new ByteRate( bitsPerSecond / 8 );
+  }
+
+  /**
+   * @return The rate at which {@code size} is transferred in {@code duration} {@code timeUnit}s.
+   */
+  public static ByteRate of( ByteSize size, long duration, TimeUnit timeUnit ) {
+    return of( size.numberOfBytes( ByteSizeUnits.BYTE ), timeUnit.toNanos( duration ) );
+  }
+
+  /**
+   * @param nanos A duration in nanoseconds, greater than zero.
+   */
+  static ByteRate of( double numberOfBytes, long nanos ) {
+    if ( nanos <= 0 ) {
+      throw new IllegalArgumentException( "Duration must be positive: " + nanos + " ns" );
+    }
+    return new ByteRate( numberOfBytes * NANOS_PER_SECOND / nanos );
+  }
+
+  public double bytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public double bitsPerSecond() {
+    return bytesPerSecond * 8;
+  }
+
+  public double bytesPer( TimeUnit timeUnit ) {
+    return bytesPerSecond * timeUnit.toNanos( 1 ) / NANOS_PER_SECOND;
+  }
+
+  public double bitsPer( TimeUnit timeUnit ) {
+    return bytesPer( timeUnit ) * 8;
+  }
+
+  /**
+   * @return The amount transferred in one second.
+   */
+  public ByteSize perSecond() {
+    return ByteSizes.byteSize( bytesPerSecond );
+  }
+
+  /**
+   * @return The amount transferred in one {@code timeUnit}.
+   */
+  public ByteSize per( TimeUnit timeUnit ) {
+    return ByteSizes.byteSize( bytesPer( timeUnit ) );
+  }
+
+  /**
+   * @return The amount transferred in {@code duration} {@code timeUnit}s.
+   */
+  public ByteSize times( long duration, TimeUnit timeUnit ) {
+    return ByteSizes.byteSize( bytesPerSecond * timeUnit.toNanos( duration ) / NANOS_PER_SECOND );
+  }
+
+  public int compareTo( ByteRate o ) {
+    return Double.compare( bytesPerSecond, o.bytesPerSecond );
+  }
+
+  public boolean equals( Object o ) {
+    if ( this == o ) return true;
+    if ( o == null || getClass() != o.getClass() ) return false;
+    return Double.compare( bytesPerSecond, ((ByteRate) o).bytesPerSecond ) == 0;
+  }
+
+  public int hashCode() {
+    long bits = Double.doubleToLongBits( bytesPerSecond );
+    return (int) ( bits ^ ( bits >>> 32 ) );
+  }
+
+  public String toString() {
+    return Math.round( bytesPerSecond ) + " bytes per second";
+  }
+
+}
@@ -0,0 +1,131 @@
+package org.codeswarm.bytesize;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Measures throughput over a sliding window of recent time, such as the
+ * rate of bytes sent over the last ten seconds.</p>
+ *
+ * <p>The window is divided into a ring of slots, each counting the bytes
+ * recorded during one slice of time. Recording adds to the current slot with
+ * one atomic operation and takes no lock; when time moves on to a slot last
+ * used a full window ago, the first thread to record into it clears it.
+ * {@link #rate()} sums the slots still inside the window, so the oldest slice
+ * drops out of the rate in one step rather than gradually.</p>
+ *
+ * <p>Instances are safe for concurrent use. Clearing a slot subtracts the count
+ * it read rather than overwriting it, so a recording that lands while its slot
+ * is being cleared is counted in the following slice. Only a recording held up
+ * for a whole window, until its slot is reused, can be dropped along with the
+ * slice it belonged to.</p>
+ */
+public final class ByteRateMeter {
+
+  /** Marks a slot that is being cleared. */
+  private static final long CLEARING = Long.MIN_VALUE;
+
+  private final LongSupplier nanoClock;
+  private final long start;
+  private final long slotNanos;
+  private final int slotCount;
+
+  private final AtomicLongArray counts;
+
+  /** The index of the slice of time that each slot is counting, counted from {@link #start}. */
+  private final AtomicLongArray epochs;
+
+  /**
+   * Creates a meter with ten slots.
+   */
+  public ByteRateMeter( long window, TimeUnit timeUnit ) {
+    this( window, timeUnit, 10 );
+  }
+
+  /**
+   * @param slots The number of slices the window is divided into; more slots
+   *              make the window slide more smoothly.
+   */
+  public ByteRateMeter( long window, TimeUnit timeUnit, int slots ) {
+    this( window, timeUnit, slots, System::nanoTime );
+  }
+
+  ByteRateMeter( long window, TimeUnit timeUnit, int slots, LongSupplier nanoClock ) {
+    if ( slots < 1 ) {
+      throw new IllegalArgumentException( "slots: " + slots );
+    }
+    long windowNanos = timeUnit.toNanos( window );
+    if ( windowNanos < slots ) {
+      throw new IllegalArgumentException( "Window too short: " + window + " " + timeUnit );
+    }
+    this.nanoClock = nanoClock;
+    this.start = nanoClock.getAsLong();
+    this.slotNanos = windowNanos / slots;
+    this.slotCount = slots;
+    this.counts = new AtomicLongArray( slots );
+    this.epochs = new AtomicLongArray( slots );
+  }
+
+  public void record( long numberOfBytes ) {
+    long epoch = epoch( nanoClock.getAsLong() );
+    int i = (int) ( epoch % slotCount );
+    while ( true ) {
+      long slotEpoch = epochs.get( i );
+      if ( slotEpoch >= epoch ) {
+        counts.addAndGet( i, numberOfBytes );
+        return;
+      }
+      if ( slotEpoch == CLEARING ) {
+        Thread.yield();
+      } else if ( epochs.compareAndSet( i, slotEpoch, CLEARING ) ) {
+        // not set: an add by a thread that read the old epoch must not be overwritten
+        counts.addAndGet( i, numberOfBytes - counts.get( i ) );
+        epochs.set( i, epoch );
+        return;
+      }
+    }
+  }
+
+  /**
+   * Records an exact size, or an approximate size rounded to the nearest byte.
+   */
+  public void record( ByteSize byteSize ) {
+    if ( byteSize instanceof ExactByteSize && ExactByteSizes.isLong( (ExactByteSize) byteSize ) ) {
+      record( ExactByteSizes.longValue( (ExactByteSize) byteSize ) );
+    } else {
+      record( Math.round( byteSize.numberOfBytes( ByteSizeUnits.BYTE ) ) );
+    }
+  }
+
+  /**
+   * @return The bytes recorded within the window, divided by the length of
+   * the window (or by the time since this meter was created, if that is shorter).
+   */
+  public ByteRate rate() {
+    long now = nanoClock.getAsLong();
+    long epoch = epoch( now );
+    long oldest = epoch - slotCount + 1;
+    long bytes = 0;
+    for ( int i = 0; i < slotCount; i++ ) {
+      long slotEpoch = epochs.get( i );
+      if ( slotEpoch >= oldest && slotEpoch <= epoch ) {
+        bytes += counts.get( i );
+      }
+    }
+    long elapsed = now - ( start + Math.max( oldest, 0 ) * slotNanos );
+    if ( elapsed <= 0 ) {
+      return ByteRate.ZERO;
+    }
+    return ByteRate.of( bytes, elapsed );
+  }
+
+  private long epoch( long nanoTime ) {
+    return Math.max( nanoTime - start, 0 ) / slotNanos;
+  }
+
+  public String toString() {
+    return rate().toString();
+  }
+
+}
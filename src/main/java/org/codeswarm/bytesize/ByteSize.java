@@ -11,6 +11,50 @@ public interface ByteSize extends Comparable<ByteSize> {
 
   double numberOfBytes( ExactByteSize unit );
 
+  /**
+   * @return The sum, which is exact if both sizes are exact, and otherwise
+   * approximate in the unit of this size.
+   */
+  default ByteSize plus( ByteSize other ) {
+    return DoubleWithUnit.plus( this, other );
+  }
+
+  /**
+   * @return The difference, which is exact if both sizes are exact, and otherwise
+   * approximate in the unit of this size.
+   */
+  default ByteSize minus( ByteSize other ) {
+    return DoubleWithUnit.minus( this, other );
+  }
+
+  /**
+   * @return An approximate size in the unit of this size.
+   */
+  default ByteSize times( double factor ) {
+    return DoubleWithUnit.times( this, factor );
+  }
+
+  /**
+   * @return An approximate size in the unit of this size.
+   */
+  default ByteSize dividedBy( double divisor ) {
+    return DoubleWithUnit.dividedBy( this, divisor );
+  }
+
+  /**
+   * @return The smaller of the two sizes, or this size if they are equal.
+   */
+  default ByteSize min( ByteSize other ) {
+    return compareTo( other ) <= 0 ? this : other;
+  }
+
+  /**
+   * @return The larger of the two sizes, or this size if they are equal.
+   */
+  default ByteSize max( ByteSize other ) {
+    return compareTo( other ) >= 0 ? this : other;
+  }
+
   /**
    * Use {@link #compareTo(Object)}, not {@link #equals(Object)}, to compare byte sizes.
    *
@@ -0,0 +1,336 @@
+package org.codeswarm.bytesize;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>A compact binary encoding of {@link ByteSize}s, for sending them between
+ * processes or storing them in caches.</p>
+ *
+ * <p>Each size starts with a tag byte:</p>
+ *
+ * <ul>
+ *   <li>{@code 0}: an exact size that fits in a long, followed by its number of
+ *       bytes as a zig-zag varint (one byte for sizes from -64 to 63, three bytes
+ *       for sizes up to a megabyte);</li>
+ *   <li>{@code 1}: an exact size outside the long range, followed by a varint
+ *       length and that many bytes of big-endian two's complement;</li>
+ *   <li>{@code 2}: an approximate size, followed by the eight bytes of a
+ *       big-endian IEEE 754 double and then its unit, encoded as an exact size.
+ *       A unit equal to one of the {@linkplain ByteSizeUnits#getAllDefaultUnits()
+ *       default units} is decoded as that unit.</li>
+ * </ul>
+ *
+ * <p>The {@link ByteBuffer} and {@link DataOutput} forms produce the same bytes,
+ * whatever the buffer's byte order. Long-valued sizes are written and read without
+ * allocating (reading returns a shared instance for common values; use
+ * {@link #readLong(ByteBuffer)} to avoid the object entirely).</p>
+ */
+public final class ByteSizeCodec {
+
+  private ByteSizeCodec() {}
+
+  static final byte LONG = 0, BIG = 1, APPROXIMATE = 2;
+
+  /** The length of the two's complement of the largest BigInteger, which has {@code Integer.MAX_VALUE} bits. */
+  private static final int MAX_BIG_LENGTH = Integer.MAX_VALUE / 8 + 1;
+
+  /** The most bytes of a BigInteger that are allocated before they have been read. */
+  private static final int BIG_CHUNK = 8192;
+
+  /**
+   * @return The number of bytes that {@code write} will use for {@code byteSize}.
+   */
+  public static int sizeOf( ByteSize byteSize ) {
+    if ( byteSize instanceof ExactByteSize ) {
+      return sizeOfExact( (ExactByteSize) byteSize );
+    }
+    return 1 + 8 + sizeOfExact( unitOf( byteSize ) );
+  }
+
+  /**
+   * @throws java.nio.BufferOverflowException If {@code out} has fewer than
+   * {@link #sizeOf(ByteSize)} bytes remaining.
+   */
+  public static void write( ByteSize byteSize, ByteBuffer out ) {
+    if ( byteSize instanceof ExactByteSize ) {
+      writeExact( (ExactByteSize) byteSize, out );
+      return;
+    }
+    out.put( APPROXIMATE );
+    putLongBigEndian( out, Double.doubleToLongBits( numberOf( byteSize ) ) );
+    writeExact( unitOf( byteSize ), out );
+  }
+
+  /**
+   * @throws java.nio.BufferUnderflowException If {@code in} ends within the size.
+   * @throws IllegalArgumentException If the bytes are not a valid encoding, or
+   * give a length longer than the bytes remaining in {@code in}.
+   */
+  public static ByteSize read( ByteBuffer in ) {
+    byte tag = in.get();
+    if ( tag == APPROXIMATE ) {
+      double number = Double.longBitsToDouble( getLongBigEndian( in ) );
+      ExactByteSize unit = defaultUnit( readExact( in.get(), in ) );
+      return new DoubleWithUnit( number, unit );
+    }
+    return readExact( tag, in );
+  }
+
+  /**
+   * Writes {@code numberOfBytes} as an exact size; the same as
+   * {@code write(byteSize(numberOfBytes), out)}.
+   */
+  public static void writeLong( long numberOfBytes, ByteBuffer out ) {
+    out.put( LONG );
+    putVarint( out, zigZag( numberOfBytes ) );
+  }
+
+  /**
+   * Reads an exact size that was written as a long.
+   *
+   * @throws IllegalArgumentException If the next size is approximate or outside the long range.
+   */
+  public static long readLong( ByteBuffer in ) {
+    byte tag = in.get();
+    if ( tag != LONG ) {
+      throw new IllegalArgumentException( "Not a long-valued size, tag " + tag );
+    }
+    return unZigZag( getVarint( in ) );
+  }
+
+  public static void write( ByteSize byteSize, DataOutput out ) throws IOException {
+    if ( byteSize instanceof ExactByteSize ) {
+      writeExact( (ExactByteSize) byteSize, out );
+      return;
+    }
+    out.writeByte( APPROXIMATE );
+    out.writeDouble( numberOf( byteSize ) );
+    writeExact( unitOf( byteSize ), out );
+  }
+
+  /**
+   * @throws java.io.EOFException If the input ends within the size.
+   * @throws StreamCorruptedException If the bytes are not a valid encoding.
+   */
+  public static ByteSize read( DataInput in ) throws IOException {
+    byte tag = in.readByte();
+    if ( tag == APPROXIMATE ) {
+      double number = in.readDouble();
+      ExactByteSize unit = defaultUnit( readExact( in.readByte(), in ) );
+      return new DoubleWithUnit( number, unit );
+    }
+    return readExact( tag, in );
+  }
+
+  public static void writeLong( long numberOfBytes, DataOutput out ) throws IOException {
+    out.writeByte( LONG );
+    writeVarint( out, zigZag( numberOfBytes ) );
+  }
+
+  /**
+   * @throws StreamCorruptedException If the next size is approximate or outside the long range.
+   */
+  public static long readLong( DataInput in ) throws IOException {
+    byte tag = in.readByte();
+    if ( tag != LONG ) {
+      throw new StreamCorruptedException( "Not a long-valued size, tag " + tag );
+    }
+    return unZigZag( readVarint( in ) );
+  }
+
+  private static int sizeOfExact( ExactByteSize size ) {
+    if ( ExactByteSizes.isLong( size ) ) {
+      return 1 + varintSize( zigZag( ExactByteSizes.longValue( size ) ) );
+    }
+    int length = size.numberOfBytes().bitLength() / 8 + 1;
+    return 1 + varintSize( length ) + length;
+  }
+
+  private static void writeExact( ExactByteSize size, ByteBuffer out ) {
+    if ( ExactByteSizes.isLong( size ) ) {
+      writeLong( ExactByteSizes.longValue( size ), out );
+    } else {
+      byte[] bytes = size.numberOfBytes().toByteArray();
+      out.put( BIG );
+      putVarint( out, bytes.length );
+      out.put( bytes );
+    }
+  }
+
+  private static void writeExact( ExactByteSize size, DataOutput out ) throws IOException {
+    if ( ExactByteSizes.isLong( size ) ) {
+      writeLong( ExactByteSizes.longValue( size ), out );
+    } else {
+      byte[] bytes = size.numberOfBytes().toByteArray();
+      out.writeByte( BIG );
+      writeVarint( out, bytes.length );
+      out.write( bytes );
+    }
+  }
+
+  private static ExactByteSize readExact( byte tag, ByteBuffer in ) {
+    switch ( tag ) {
+      case LONG:
+        return LongByteSize.valueOf( unZigZag( getVarint( in ) ) );
+      case BIG:
+        int length = bigLength( getVarint( in ) );
+        if ( length > in.remaining() ) {
+          throw new IllegalArgumentException( "Length " + length + " but " + in.remaining() + " bytes remain" );
+        }
+        byte[] bytes = new byte[length];
+        in.get( bytes );
+        return ExactByteSizes.valueOf( new BigInteger( bytes ) );
+      default:
+        throw new IllegalArgumentException( "Unknown tag " + tag );
+    }
+  }
+
+  private static ExactByteSize readExact( byte tag, DataInput in ) throws IOException {
+    try {
+      switch ( tag ) {
+        case LONG:
+          return LongByteSize.valueOf( unZigZag( readVarint( in ) ) );
+        case BIG:
+          byte[] bytes = readBig( in, bigLength( readVarint( in ) ) );
+          return ExactByteSizes.valueOf( new BigInteger( bytes ) );
+        default:
+          throw new StreamCorruptedException( "Unknown tag " + tag );
+      }
+    } catch ( IllegalArgumentException e ) {
+      throw new StreamCorruptedException( e.getMessage() );
+    }
+  }
+
+  private static int bigLength( long length ) {
+    if ( length < 1 || length > MAX_BIG_LENGTH ) {
+      throw new IllegalArgumentException( "Invalid length " + length );
+    }
+    return (int) length;
+  }
+
+  /**
+   * Reads a chunk at a time, so that a corrupt length cannot allocate more than
+   * about twice the bytes that the input actually holds.
+   */
+  private static byte[] readBig( DataInput in, int length ) throws IOException {
+    byte[] bytes = new byte[Math.min( length, BIG_CHUNK )];
+    int read = 0;
+    while ( true ) {
+      in.readFully( bytes, read, bytes.length - read );
+      read = bytes.length;
+      if ( read == length ) {
+        return bytes;
+      }
+      bytes = Arrays.copyOf( bytes, (int) Math.min( 2L * read, length ) );
+    }
+  }
+
+  private static double numberOf( ByteSize byteSize ) {
+    if ( byteSize instanceof DoubleWithUnit ) {
+      return ((DoubleWithUnit) byteSize).number();
+    }
+    return byteSize.numberOfBytes( ByteSizeUnits.BYTE );
+  }
+
+  private static ExactByteSize unitOf( ByteSize byteSize ) {
+    if ( byteSize instanceof DoubleWithUnit ) {
+      return ((DoubleWithUnit) byteSize).unit();
+    }
+    return ByteSizeUnits.BYTE;
+  }
+
+  private static ExactByteSize defaultUnit( ExactByteSize unit ) {
+    for ( ByteSizeUnit defaultUnit : ByteSizeUnits.getAllDefaultUnits() ) {
+      if ( defaultUnit.equals( unit ) ) {
+        return defaultUnit;
+      }
+    }
+    return unit;
+  }
+
+  /*
+   * Varints: seven bits per byte, least significant group first, with the high
+   * bit set on every byte but the last. Signed values are zig-zag encoded first
+   * so that small negative numbers are short too.
+   */
+
+  static long zigZag( long n ) {
+    return ( n << 1 ) ^ ( n >> 63 );
+  }
+
+  static long unZigZag( long n ) {
+    return ( n >>> 1 ) ^ -( n & 1 );
+  }
+
+  static int varintSize( long n ) {
+    int bits = 64 - Long.numberOfLeadingZeros( n | 1 );
+    return ( bits + 6 ) / 7;
+  }
+
+  static void putVarint( ByteBuffer out, long n ) {
+    while ( ( n & ~0x7FL ) != 0 ) {
+      out.put( (byte) ( ( n & 0x7F ) | 0x80 ) );
+      n >>>= 7;
+    }
+    out.put( (byte) n );
+  }
+
+  static long getVarint( ByteBuffer in ) {
+    long n = 0;
+    for ( int shift = 0; shift < 64; shift += 7 ) {
+      byte b = in.get();
+      if ( shift == 63 && ( b & 0x7E ) != 0 ) {
+        throw new IllegalArgumentException( "Varint too large for a long" );
+      }
+      n |= (long) ( b & 0x7F ) << shift;
+      if ( b >= 0 ) {
+        return n;
+      }
+    }
+    throw new IllegalArgumentException( "Varint longer than 10 bytes" );
+  }
+
+  static void writeVarint( DataOutput out, long n ) throws IOException {
+    while ( ( n & ~0x7FL ) != 0 ) {
+      out.writeByte( (int) ( ( n & 0x7F ) | 0x80 ) );
+      n >>>= 7;
+    }
+    out.writeByte( (int) n );
+  }
+
+  static long readVarint( DataInput in ) throws IOException {
+    long n = 0;
+    for ( int shift = 0; shift < 64; shift += 7 ) {
+      byte b = in.readByte();
+      if ( shift == 63 && ( b & 0x7E ) != 0 ) {
+        throw new StreamCorruptedException( "Varint too large for a long" );
+      }
+      n |= (long) ( b & 0x7F ) << shift;
+      if ( b >= 0 ) {
+        return n;
+      }
+    }
+    throw new StreamCorruptedException( "Varint longer than 10 bytes" );
+  }
+
+  private static void putLongBigEndian( ByteBuffer out, long n ) {
+    for ( int shift = 56; shift >= 0; shift -= 8 ) {
+      out.put( (byte) ( n >>> shift ) );
+    }
+  }
+
+  private static long getLongBigEndian( ByteBuffer in ) {
+    long n = 0;
+    for ( int i = 0; i < 8; i++ ) {
+      n = ( n << 8 ) | ( in.get() & 0xFF );
+    }
+    return n;
+  }
+
+}
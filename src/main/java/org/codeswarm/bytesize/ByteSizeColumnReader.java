@@ -0,0 +1,261 @@
+package org.codeswarm.bytesize;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>Reads one column of byte sizes out of delimited text (CSV, TSV and the like),
+ * such as {@code "1.5 GB"} or {@code "300 KiB"}, and delivers each as a number
+ * of bytes.</p>
+ *
+ * <p>Text is read through one reusable buffer and each field is parsed where it
+ * lies, so memory use does not grow with the input (only with the longest line)
+ * and no string is created per row. Fields may be enclosed in double quotes, in
+ * which case delimiters inside the quotes are not treated as field separators.
+ * Blank lines are skipped. Sizes that are not a whole number of bytes are rounded
+ * to the nearest byte.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class ByteSizeColumnReader implements Closeable {
+
+  static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final Reader reader;
+  private final int column;
+  private final char delimiter;
+  private final ByteSizeFormat format;
+  private final ParsePosition position = new ParsePosition( 0 );
+
+  private char[] buffer;
+  private CharBuffer text;
+  private int pos, limit;
+  private boolean eof;
+  private long lineNumber;
+
+  /**
+   * @param column The zero-based index of the column holding the sizes.
+   * @param format Parses the sizes; determines the language of the unit words.
+   */
+  public ByteSizeColumnReader( Reader reader, int column, char delimiter, ByteSizeFormat format ) {
+    this( reader, column, delimiter, format, DEFAULT_BUFFER_SIZE );
+  }
+
+  public ByteSizeColumnReader( InputStream in, Charset charset, int column, char delimiter,
+                               ByteSizeFormat format ) {
+    this( new InputStreamReader( in, charset ), column, delimiter, format );
+  }
+
+  ByteSizeColumnReader( Reader reader, int column, char delimiter, ByteSizeFormat format, int bufferSize ) {
+    if ( column < 0 ) {
+      throw new IllegalArgumentException( "Negative column: " + column );
+    }
+    this.reader = reader;
+    this.column = column;
+    this.delimiter = delimiter;
+    this.format = format;
+    this.buffer = new char[bufferSize];
+    this.text = CharBuffer.wrap( buffer );
+  }
+
+  /**
+   * Discards the next line, such as a header row.
+   *
+   * @return {@code false} if there was no line left to skip.
+   */
+  public boolean skipLine() throws IOException {
+    int end = nextLine();
+    if ( end < 0 ) {
+      return false;
+    }
+    pos = lineEnd( end );
+    return true;
+  }
+
+  /**
+   * Reads every remaining row.
+   *
+   * @return The number of rows read.
+   */
+  public long readAll( LongConsumer sink ) throws IOException, ParseException {
+    long rows = 0;
+    int end;
+    while ( ( end = nextNonBlankLine() ) >= 0 ) {
+      sink.accept( parseLine( end ) );
+      rows++;
+    }
+    return rows;
+  }
+
+  /**
+   * Reads rows until {@code chunk} is full or the input ends.
+   *
+   * @return The number of sizes stored at the start of {@code chunk},
+   * or {@code -1} if the input had already ended.
+   */
+  public int read( long[] chunk ) throws IOException, ParseException {
+    int n = 0;
+    int end;
+    while ( n < chunk.length && ( end = nextNonBlankLine() ) >= 0 ) {
+      chunk[n++] = parseLine( end );
+    }
+    return n == 0 && chunk.length > 0 ? -1 : n;
+  }
+
+  /**
+   * @return The number of lines read so far, including skipped ones.
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private int nextNonBlankLine() throws IOException {
+    int end;
+    while ( ( end = nextLine() ) >= 0 ) {
+      int contentEnd = contentEnd( end );
+      int i = pos;
+      while ( i < contentEnd && buffer[i] <= ' ' ) i++;
+      if ( i < contentEnd ) {
+        return end;
+      }
+      pos = lineEnd( end );
+    }
+    return -1;
+  }
+
+  /**
+   * Makes sure a whole line starting at {@link #pos} is in the buffer.
+   *
+   * @return The index of its terminating newline, or {@link #limit} if the
+   * input ends without one, or {@code -1} if there are no more lines.
+   */
+  private int nextLine() throws IOException {
+    int scanned = pos;
+    while ( true ) {
+      for ( int i = scanned; i < limit; i++ ) {
+        if ( buffer[i] == '\n' ) {
+          lineNumber++;
+          return i;
+        }
+      }
+      scanned = limit;
+      if ( eof ) {
+        if ( pos < limit ) {
+          lineNumber++;
+          return limit;
+        }
+        return -1;
+      }
+      if ( limit == buffer.length ) {
+        if ( pos > 0 ) {
+          System.arraycopy( buffer, pos, buffer, 0, limit - pos );
+          scanned -= pos;
+          limit -= pos;
+          pos = 0;
+        } else {
+          // the line is longer than the buffer
+          buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+          text = CharBuffer.wrap( buffer );
+        }
+      }
+      int read = reader.read( buffer, limit, buffer.length - limit );
+      if ( read < 0 ) {
+        eof = true;
+      } else {
+        limit += read;
+      }
+    }
+  }
+
+  private int lineEnd( int end ) {
+    return end < limit ? end + 1 : end;
+  }
+
+  private int contentEnd( int end ) {
+    return end > pos && buffer[end - 1] == '\r' ? end - 1 : end;
+  }
+
+  private long parseLine( int end ) throws ParseException {
+    int lineStart = pos;
+    int lineContentEnd = contentEnd( end );
+    pos = lineEnd( end );
+
+    // find the column
+    int fieldStart = lineStart;
+    int field = 0;
+    boolean quoted = false;
+    int i = lineStart;
+    for ( ; i < lineContentEnd; i++ ) {
+      char c = buffer[i];
+      if ( c == '"' ) {
+        quoted = ! quoted;
+      } else if ( c == delimiter && ! quoted ) {
+        if ( field == column ) {
+          break;
+        }
+        field++;
+        fieldStart = i + 1;
+      }
+    }
+    if ( field != column ) {
+      throw error( lineStart, lineContentEnd, "no column " + column, lineContentEnd - lineStart );
+    }
+    int fieldEnd = i;
+
+    // remove enclosing quotes
+    int start = fieldStart, stop = fieldEnd;
+    while ( start < stop && buffer[start] <= ' ' ) start++;
+    while ( stop > start && buffer[stop - 1] <= ' ' ) stop--;
+    if ( stop - start >= 2 && buffer[start] == '"' && buffer[stop - 1] == '"' ) {
+      start++;
+      stop--;
+    }
+
+    ByteSize byteSize = format.parse( text, start, stop, position );
+    if ( byteSize == null ) {
+      throw error( lineStart, lineContentEnd, "invalid size", position.getErrorIndex() - lineStart );
+    }
+    if ( ! isLong( byteSize ) ) {
+      throw error( lineStart, lineContentEnd, "size out of range", start - lineStart );
+    }
+    return longValue( byteSize );
+  }
+
+  /**
+   * @return Whether {@link #longValue} can reduce {@code byteSize} to a long:
+   * an exact size in the long range, or an approximate size less than
+   * 2<sup>63</sup> bytes from zero.
+   */
+  static boolean isLong( ByteSize byteSize ) {
+    if ( byteSize instanceof ExactByteSize ) {
+      return ExactByteSizes.isLong( (ExactByteSize) byteSize );
+    }
+    return Math.abs( byteSize.numberOfBytes( ByteSizeUnits.BYTE ) ) < 0x1p63;
+  }
+
+  /**
+   * @return The number of bytes in {@code byteSize}, rounded to the nearest byte
+   * if it is approximate; it must be {@linkplain #isLong long-valued}.
+   */
+  static long longValue( ByteSize byteSize ) {
+    if ( byteSize instanceof ExactByteSize ) {
+      return ExactByteSizes.longValue( (ExactByteSize) byteSize );
+    }
+    return Math.round( byteSize.numberOfBytes( ByteSizeUnits.BYTE ) );
+  }
+
+  private ParseException error( int lineStart, int lineEnd, String message, int offset ) {
+    String line = new String( buffer, lineStart, lineEnd - lineStart );
+    return new ParseException( "Line " + lineNumber + ": " + message + ": " + line, offset );
+  }
+
+}
@@ -0,0 +1,293 @@
+package org.codeswarm.bytesize;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>Reads one column of byte sizes out of a delimited text file, like
+ * {@link ByteSizeColumnReader}, but by memory-mapping the file and parsing
+ * line-aligned chunks of it in parallel.</p>
+ *
+ * <p>The file is split at the first line break after every
+ * {@value #DEFAULT_CHUNK_SIZE} bytes, and each chunk is mapped with
+ * {@link FileChannel#map} and parsed by its own fork/join task. Fields are
+ * parsed where they lie in the mapped bytes, so the text is never copied into
+ * the heap; only the parsed sizes are. The text must be UTF-8 (or ASCII);
+ * fields that are not ASCII are decoded before parsing.</p>
+ *
+ * <p>Fields, quotes, blank lines and rounding are treated as by
+ * {@link ByteSizeColumnReader}, except that a row that cannot be parsed does
+ * not stop the scan: it is reported in {@link Result#failures()}. A header
+ * row can be skipped; otherwise it is reported as a failure of row 0.</p>
+ *
+ * <p>Instances are immutable, and may scan several files at once. The format
+ * is used as by {@link ByteSizeColumns#parseAll}.</p>
+ */
+public final class ByteSizeColumnScanner {
+
+  static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+  private final int column;
+  private final byte delimiter;
+  private final ByteSizeFormat format;
+  private final boolean skipHeader;
+  private final int chunkSize;
+
+  /**
+   * @param column The zero-based index of the column holding the sizes.
+   * @param delimiter An ASCII character.
+   * @param format Parses the sizes; determines the language of the unit words.
+   */
+  public ByteSizeColumnScanner( int column, char delimiter, ByteSizeFormat format ) {
+    this( column, delimiter, false, format );
+  }
+
+  /**
+   * @param skipHeader Whether to skip the first line of the file, which is then not
+   *                   counted as a row: row 0 is the line after it.
+   */
+  public ByteSizeColumnScanner( int column, char delimiter, boolean skipHeader, ByteSizeFormat format ) {
+    this( column, delimiter, skipHeader, format, DEFAULT_CHUNK_SIZE );
+  }
+
+  ByteSizeColumnScanner( int column, char delimiter, boolean skipHeader, ByteSizeFormat format,
+                         int chunkSize ) {
+    if ( column < 0 ) {
+      throw new IllegalArgumentException( "Negative column: " + column );
+    }
+    if ( delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' ) {
+      throw new IllegalArgumentException( "Invalid delimiter: " + delimiter );
+    }
+    this.column = column;
+    this.delimiter = (byte) delimiter;
+    this.format = format;
+    this.skipHeader = skipHeader;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Scans {@code file} in the {@linkplain ForkJoinPool#commonPool() common pool}.
+   */
+  public Result scan( Path file ) throws IOException {
+    return scan( file, ForkJoinPool.commonPool() );
+  }
+
+  public Result scan( Path file, ForkJoinPool pool ) throws IOException {
+    try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+      long size = channel.size();
+      NumberFormat prototype = BulkParser.prototypeOf( format );
+      List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+      long start = skipHeader ? lineBoundary( channel, 1, size ) : 0;
+      while ( start < size ) {
+        long end = lineBoundary( channel, Math.min( size, start + chunkSize ), size );
+        if ( end - start > Integer.MAX_VALUE ) {
+          throw new IOException( "Line too long at byte " + start );
+        }
+        tasks.add( new ChunkTask( channel.map( FileChannel.MapMode.READ_ONLY, start, end - start ), prototype ) );
+        start = end;
+      }
+      if ( tasks.size() == 1 ) {
+        tasks.get( 0 ).compute();
+      } else if ( ! tasks.isEmpty() ) {
+        pool.invoke( new RecursiveAction() {
+          protected void compute() {
+            invokeAll( tasks );
+          }
+        } );
+      }
+      return Result.concat( tasks );
+    }
+  }
+
+  /**
+   * @return The index just after the first line break at or after {@code from - 1},
+   * or {@code size} if there is none.
+   */
+  private static long lineBoundary( FileChannel channel, long from, long size ) throws IOException {
+    if ( from >= size ) {
+      return size;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+    long position = from - 1;
+    while ( position < size ) {
+      ( (Buffer) buffer ).clear();
+      int read = channel.read( buffer, position );
+      if ( read <= 0 ) {
+        break;
+      }
+      for ( int i = 0; i < read; i++ ) {
+        if ( buffer.get( i ) == '\n' ) {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  /**
+   * The sizes in one column of a file.
+   */
+  public static final class Result {
+
+    private final long[] sizes;
+    private final BitSet failures;
+
+    Result( long[] sizes, BitSet failures ) {
+      this.sizes = sizes;
+      this.failures = failures;
+    }
+
+    static Result concat( List<ChunkTask> chunks ) {
+      long rows = 0;
+      for ( ChunkTask chunk : chunks ) {
+        rows += chunk.rows;
+      }
+      if ( rows > Integer.MAX_VALUE - 8 ) {
+        throw new IllegalStateException( "Too many rows: " + rows );
+      }
+      long[] sizes = new long[(int) rows];
+      BitSet failures = new BitSet();
+      int offset = 0;
+      for ( ChunkTask chunk : chunks ) {
+        System.arraycopy( chunk.sizes, 0, sizes, offset, chunk.rows );
+        BitSet chunkFailures = BitSet.valueOf( chunk.failures );
+        for ( int i = chunkFailures.nextSetBit( 0 ); i >= 0; i = chunkFailures.nextSetBit( i + 1 ) ) {
+          failures.set( offset + i );
+        }
+        offset += chunk.rows;
+      }
+      return new Result( sizes, failures );
+    }
+
+    /**
+     * @return The number of non-blank lines.
+     */
+    public int rowCount() {
+      return sizes.length;
+    }
+
+    /**
+     * @return The number of bytes of each row, or 0 for rows that could not be parsed.
+     * The array is not copied.
+     */
+    public long[] sizes() {
+      return sizes;
+    }
+
+    /**
+     * @return The indexes of the rows that have no such column, or whose field is
+     * not a size or is a size that does not fit in a long.
+     */
+    public BitSet failures() {
+      return failures;
+    }
+
+    public String toString() {
+      return "ByteSizeColumnScanner.Result{rows=" + sizes.length + ", failures=" + failures.cardinality() + "}";
+    }
+
+  }
+
+  /**
+   * Parses the rows of one mapped chunk, which holds whole lines.
+   */
+  final class ChunkTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    final MappedByteBuffer bytes;
+    final NumberFormat prototype;
+
+    long[] sizes = new long[1024];
+    long[] failures = new long[1024 >>> 6];
+    int rows;
+
+    ChunkTask( MappedByteBuffer bytes, NumberFormat prototype ) {
+      this.bytes = bytes;
+      this.prototype = prototype;
+    }
+
+    protected void compute() {
+      BulkParser parser = new BulkParser( format, prototype );
+      ByteBufferText text = new ByteBufferText( bytes, 0, bytes.limit() );
+      int limit = bytes.limit();
+      int lineStart = 0;
+      while ( lineStart < limit ) {
+        int lineEnd = lineStart;
+        while ( lineEnd < limit && bytes.get( lineEnd ) != '\n' ) {
+          lineEnd++;
+        }
+        int contentEnd = lineEnd > lineStart && bytes.get( lineEnd - 1 ) == '\r' ? lineEnd - 1 : lineEnd;
+        if ( ! isBlank( lineStart, contentEnd ) ) {
+          parseLine( parser, text, lineStart, contentEnd );
+        }
+        lineStart = lineEnd + 1;
+      }
+    }
+
+    private boolean isBlank( int start, int end ) {
+      for ( int i = start; i < end; i++ ) {
+        if ( ( bytes.get( i ) & 0xff ) > ' ' ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void parseLine( BulkParser parser, ByteBufferText text, int lineStart, int lineEnd ) {
+      if ( rows == sizes.length ) {
+        sizes = Arrays.copyOf( sizes, rows * 2 );
+        failures = Arrays.copyOf( failures, rows * 2 >>> 6 );
+      }
+      int row = rows++;
+
+      // find the column
+      int fieldStart = lineStart;
+      int field = 0;
+      boolean quoted = false;
+      int i = lineStart;
+      for ( ; i < lineEnd; i++ ) {
+        byte c = bytes.get( i );
+        if ( c == '"' ) {
+          quoted = ! quoted;
+        } else if ( c == delimiter && ! quoted ) {
+          if ( field == column ) {
+            break;
+          }
+          field++;
+          fieldStart = i + 1;
+        }
+      }
+
+      // remove enclosing quotes
+      int start = fieldStart, stop = i;
+      while ( start < stop && ( bytes.get( start ) & 0xff ) <= ' ' ) start++;
+      while ( stop > start && ( bytes.get( stop - 1 ) & 0xff ) <= ' ' ) stop--;
+      if ( stop - start >= 2 && bytes.get( start ) == '"' && bytes.get( stop - 1 ) == '"' ) {
+        start++;
+        stop--;
+      }
+
+      if ( field == column && parser.parse( text, bytes, start, stop ) ) {
+        sizes[row] = parser.bytes;
+      } else {
+        failures[row >>> 6] |= 1L << row;
+      }
+    }
+
+  }
+
+}
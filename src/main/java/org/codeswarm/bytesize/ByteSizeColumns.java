@@ -0,0 +1,261 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+
+import java.nio.LongBuffer;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+
+/**
+ * <p>Formats and parses whole columns of byte counts at once.</p>
+ *
+ * <p>The number format, unit words and unit system are looked up once per
+ * batch rather than once per value, and no {@link ByteSize} object is
+ * created for the values. The result for each value is the same as
+ * {@link ByteSizeFormat#format(ByteSize, WordLength)} of
+ * {@link ByteSizes#byteSize(long)}.</p>
+ *
+ * <p>{@link #parseAll} is the reverse, giving the number of bytes of each text,
+ * rounded to the nearest byte.</p>
+ */
+public final class ByteSizeColumns {
+
+  private ByteSizeColumns() {}
+
+  /**
+   * In parallel mode, the number of values each task formats or parses. It is
+   * a multiple of 64, so that parse tasks never share a word of the failure bitmap.
+   */
+  static final int PARALLEL_CHUNK_SIZE = 4096;
+
+  public static String[] format(
+      long[] sizes,
+      ByteSizeFormat format,
+      WordLength wordLength ) {
+
+    return format( LongBuffer.wrap( sizes ), format, wordLength, null, false ).toArray();
+  }
+
+  public static FormattedByteSizes format(
+      long[] sizes,
+      ByteSizeFormat format,
+      WordLength wordLength,
+      FormattedByteSizes out ) {
+
+    return format( LongBuffer.wrap( sizes ), format, wordLength, out, false );
+  }
+
+  /**
+   * @param sizes The values from the buffer's position to its limit are
+   *              formatted. The buffer's position is not changed.
+   * @param out A column to refill, or {@code null} to create a new one.
+   * @param parallel Whether to split large columns across the common fork-join pool.
+   *                 This requires {@code format} to be safe for concurrent use.
+   * @return {@code out}, or a new column.
+   */
+  public static FormattedByteSizes format(
+      LongBuffer sizes,
+      ByteSizeFormat format,
+      WordLength wordLength,
+      FormattedByteSizes out,
+      boolean parallel ) {
+
+    int from = sizes.position(), to = sizes.limit();
+    if ( out == null ) {
+      out = new FormattedByteSizes( to - from );
+    } else {
+      out.clear();
+      out.ensureCapacity( to - from );
+    }
+    if ( ! parallel || to - from <= PARALLEL_CHUNK_SIZE ) {
+      new Batch( format, wordLength ).format( sizes, from, to, out );
+      return out;
+    }
+
+    int chunks = ( to - from + PARALLEL_CHUNK_SIZE - 1 ) / PARALLEL_CHUNK_SIZE;
+    FormattedByteSizes[] parts = new FormattedByteSizes[chunks];
+    IntStream.range( 0, chunks ).parallel().forEach( chunk -> {
+      int chunkFrom = from + chunk * PARALLEL_CHUNK_SIZE;
+      int chunkTo = Math.min( to, chunkFrom + PARALLEL_CHUNK_SIZE );
+      FormattedByteSizes part = new FormattedByteSizes( chunkTo - chunkFrom );
+      new Batch( format, wordLength ).format( sizes, chunkFrom, chunkTo, part );
+      parts[chunk] = part;
+    } );
+    for ( FormattedByteSizes part : parts ) {
+      int offset = out.text.length();
+      out.text.append( part.text );
+      for ( int i = 0; i < part.size; i++ ) {
+        out.ends[out.size++] = offset + part.ends[i];
+      }
+    }
+    return out;
+  }
+
+  /**
+   * @see #parseAll(List, ByteSizeFormat, long[], ForkJoinPool)
+   */
+  public static BitSet parseAll( CharSequence[] texts, ByteSizeFormat format, long[] out ) {
+    return parseAll( Arrays.asList( texts ), format, out, ForkJoinPool.commonPool() );
+  }
+
+  /**
+   * @see #parseAll(List, ByteSizeFormat, long[], ForkJoinPool)
+   */
+  public static BitSet parseAll( List<? extends CharSequence> texts, ByteSizeFormat format, long[] out ) {
+    return parseAll( texts, format, out, ForkJoinPool.commonPool() );
+  }
+
+  /**
+   * <p>Parses every text in {@code texts}, splitting large lists into tasks
+   * of {@value #PARALLEL_CHUNK_SIZE} values across {@code pool}.</p>
+   *
+   * <p>A format built by {@link ByteSizeFormatBuilder} is safe to use here. A
+   * format of any other kind is called from several threads at once and must
+   * be safe for concurrent use. The list must not be changed while it is
+   * parsed, and should support fast random access.</p>
+   *
+   * @param texts Each is parsed whole, as by {@link ByteSizeFormat#parse(String)}.
+   * @param out Receives the number of bytes of {@code texts.get( i )} in {@code out[i]},
+   *            or 0 if it could not be parsed. It must be at least as long as {@code texts}.
+   * @return The indexes of the texts that are not sizes, or whose sizes do not fit in a long.
+   */
+  public static BitSet parseAll(
+      List<? extends CharSequence> texts,
+      ByteSizeFormat format,
+      long[] out,
+      ForkJoinPool pool ) {
+
+    int size = texts.size();
+    if ( out.length < size ) {
+      throw new IllegalArgumentException( "out.length " + out.length + " < " + size );
+    }
+    long[] failures = new long[( size + 63 ) >>> 6];
+    ParseTask task = new ParseTask( texts, format, BulkParser.prototypeOf( format ), out, failures, 0, size );
+    if ( size <= PARALLEL_CHUNK_SIZE ) {
+      task.parse();
+    } else {
+      pool.invoke( task );
+    }
+    return BitSet.valueOf( failures );
+  }
+
+  /**
+   * Parses {@code texts[from, to)}, splitting into halves at chunk boundaries.
+   */
+  private static final class ParseTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    final List<? extends CharSequence> texts;
+    final ByteSizeFormat format;
+    final NumberFormat prototype;
+    final long[] out;
+    final long[] failures;
+    final int from, to;
+
+    ParseTask( List<? extends CharSequence> texts, ByteSizeFormat format, NumberFormat prototype,
+               long[] out, long[] failures, int from, int to ) {
+      this.texts = texts;
+      this.format = format;
+      this.prototype = prototype;
+      this.out = out;
+      this.failures = failures;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      int chunks = ( to - from + PARALLEL_CHUNK_SIZE - 1 ) / PARALLEL_CHUNK_SIZE;
+      if ( chunks <= 1 ) {
+        parse();
+        return;
+      }
+      int middle = from + chunks / 2 * PARALLEL_CHUNK_SIZE;
+      invokeAll(
+        new ParseTask( texts, format, prototype, out, failures, from, middle ),
+        new ParseTask( texts, format, prototype, out, failures, middle, to ) );
+    }
+
+    void parse() {
+      BulkParser parser = new BulkParser( format, prototype );
+      for ( int i = from; i < to; i++ ) {
+        CharSequence text = texts.get( i );
+        if ( parser.parse( text, 0, text.length() ) ) {
+          out[i] = parser.bytes;
+        } else {
+          out[i] = 0;
+          // this task's range starts on a word boundary, so no other task writes this word
+          failures[i >>> 6] |= 1L << i;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * @return Whether values may be formatted or parsed with the internals of
+   * {@code format} instead of by calling it: only for a format built by
+   * {@link ByteSizeFormatBuilder}, whose methods are known, and only while no
+   * {@link ByteSizeFormatListener} is installed, since it would not be told.
+   */
+  static boolean canBypass( ByteSizeFormat format ) {
+    return format.getClass() == ByteSizeFormatBuilder.Impl.class
+      && ByteSizeInstrumentation.listener == null;
+  }
+
+  /**
+   * The per-batch state for one thread.
+   */
+  private static final class Batch {
+
+    final ByteSizeFormat format;
+    final WordLength wordLength;
+
+    // only set when the format can be bypassed
+    final NumberFormat numberFormat;
+    final DecimalRenderer renderer;
+    final UnitVocabulary vocabulary;
+    final UnitThresholds unitThresholds;
+
+    Batch( ByteSizeFormat format, WordLength wordLength ) {
+      this.format = format;
+      this.wordLength = wordLength;
+      if ( canBypass( format ) ) {
+        ByteSizeFormatBuilder.Impl impl = (ByteSizeFormatBuilder.Impl) format;
+        numberFormat = impl.getNumberFormat();
+        renderer = impl.getDecimalRenderer( numberFormat );
+        vocabulary = impl.getUnitVocabulary();
+        unitThresholds = impl.getUnitThresholds();
+      } else {
+        numberFormat = null;
+        renderer = null;
+        vocabulary = null;
+        unitThresholds = null;
+      }
+    }
+
+    void format( LongBuffer sizes, int from, int to, FormattedByteSizes out ) {
+      StringBuilder text = out.text;
+      for ( int i = from; i < to; i++ ) {
+        long n = sizes.get( i );
+        if ( vocabulary != null ) {
+          ByteSizeUnit unit = unitThresholds.select( n );
+          double number = n / ExactByteSizes.doubleValue( unit );
+          ByteSizeFormats.formatTo( number, unit, numberFormat, renderer, wordLength, vocabulary, text );
+        } else {
+          format.formatTo( byteSize( n ), wordLength, text );
+        }
+        out.endValue();
+      }
+    }
+
+  }
+
+}
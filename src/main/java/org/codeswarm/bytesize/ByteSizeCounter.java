@@ -0,0 +1,186 @@
+package org.codeswarm.bytesize;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>A running total of bytes that many threads can add to at once, such as
+ * the number of bytes read or written by a server.</p>
+ *
+ * <p>Like {@link java.util.concurrent.atomic.LongAdder}, the total is spread
+ * over several cells, each on its own cache line; a thread that collides with
+ * another moves to a different cell, so adding does not contend on one
+ * variable. Unlike {@code LongAdder}, a cell that would overflow is emptied into
+ * a {@link BigInteger} total instead of wrapping around, so the count is exact
+ * at any magnitude.</p>
+ *
+ * <p>{@link #sum()} is not an atomic snapshot: additions made while it runs may
+ * or may not be included. Likewise for {@link #sumThenReset()}, although every
+ * addition is counted in exactly one of its results.</p>
+ */
+public final class ByteSizeCounter {
+
+  /** The number of longs between cells: 128 bytes, two cache lines on most hardware. */
+  private static final int PADDING = 16;
+
+  private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+    protected int[] initialValue() {
+      return new int[]{ mix( Thread.currentThread().getId() ) };
+    }
+  };
+
+  private final AtomicLongArray cells;
+  private final int mask;
+  private final AtomicReference<BigInteger> overflow =
+    new AtomicReference<BigInteger>( BigInteger.ZERO );
+
+  /**
+   * Creates a counter with one cell per available processor, rounded up to a power of two.
+   */
+  public ByteSizeCounter() {
+    this( Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * @param stripes The number of cells, rounded up to a power of two.
+   */
+  public ByteSizeCounter( int stripes ) {
+    if ( stripes < 1 ) {
+      throw new IllegalArgumentException( "stripes: " + stripes );
+    }
+    int n = Integer.highestOneBit( stripes );
+    if ( n < stripes ) {
+      n <<= 1;
+    }
+    mask = n - 1;
+    cells = new AtomicLongArray( n * PADDING );
+  }
+
+  public void add( long numberOfBytes ) {
+    int[] probe = PROBE.get();
+    int h = probe[0];
+    while ( true ) {
+      int i = ( h & mask ) * PADDING;
+      long current = cells.get( i );
+      long sum = current + numberOfBytes;
+      if ( ( ( current ^ sum ) & ( numberOfBytes ^ sum ) ) < 0 ) {
+        // the cell would overflow, so move its value and this one into the BigInteger total
+        if ( cells.compareAndSet( i, current, 0 ) ) {
+          addToOverflow( BigInteger.valueOf( current ).add( BigInteger.valueOf( numberOfBytes ) ) );
+          return;
+        }
+      } else if ( cells.compareAndSet( i, current, sum ) ) {
+        return;
+      }
+      // another thread is using this cell; move to a different one
+      h ^= h << 13;
+      h ^= h >>> 17;
+      h ^= h << 5;
+      probe[0] = h;
+    }
+  }
+
+  /**
+   * Adds an exact size, or an approximate size rounded to the nearest byte.
+   */
+  public void add( ByteSize byteSize ) {
+    if ( byteSize instanceof ExactByteSize ) {
+      ExactByteSize exact = (ExactByteSize) byteSize;
+      if ( ExactByteSizes.isLong( exact ) ) {
+        add( ExactByteSizes.longValue( exact ) );
+      } else {
+        addToOverflow( exact.numberOfBytes() );
+      }
+      return;
+    }
+    double bytes = byteSize.numberOfBytes( ByteSizeUnits.BYTE );
+    if ( Math.abs( bytes ) < 0x1p62 ) {
+      add( Math.round( bytes ) );
+    } else {
+      addToOverflow( new BigDecimal( bytes ).setScale( 0, RoundingMode.HALF_UP ).toBigIntegerExact() );
+    }
+  }
+
+  /**
+   * @return The total of everything added since creation or the last reset.
+   */
+  public ExactByteSize sum() {
+    Total total = new Total();
+    for ( int i = 0; i < cells.length(); i += PADDING ) {
+      total.add( cells.get( i ) );
+    }
+    return total.result( overflow.get() );
+  }
+
+  /**
+   * Resets the total to zero.
+   *
+   * @return The total before the reset.
+   */
+  public ExactByteSize sumThenReset() {
+    Total total = new Total();
+    for ( int i = 0; i < cells.length(); i += PADDING ) {
+      total.add( cells.getAndSet( i, 0 ) );
+    }
+    return total.result( overflow.getAndSet( BigInteger.ZERO ) );
+  }
+
+  public void reset() {
+    sumThenReset();
+  }
+
+  public String toString() {
+    return sum().toString();
+  }
+
+  private void addToOverflow( BigInteger n ) {
+    BigInteger current;
+    do {
+      current = overflow.get();
+    } while ( ! overflow.compareAndSet( current, current.add( n ) ) );
+  }
+
+  /**
+   * Spreads thread ids over the cells.
+   */
+  private static int mix( long id ) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    int probe = (int) ( h ^ ( h >>> 32 ) );
+    return probe == 0 ? 1 : probe;
+  }
+
+  /**
+   * Sums longs, switching to a BigInteger only if the total overflows.
+   */
+  private static final class Total {
+
+    long sum;
+    BigInteger big;
+
+    void add( long n ) {
+      long s = sum + n;
+      if ( ( ( sum ^ s ) & ( n ^ s ) ) < 0 ) {
+        big = big().add( BigInteger.valueOf( sum ) ).add( BigInteger.valueOf( n ) );
+        sum = 0;
+      } else {
+        sum = s;
+      }
+    }
+
+    private BigInteger big() {
+      return big == null ? BigInteger.ZERO : big;
+    }
+
+    ExactByteSize result( BigInteger overflow ) {
+      if ( big == null && overflow.signum() == 0 ) {
+        return ByteSizes.byteSize( sum );
+      }
+      return ByteSizes.byteSize( big().add( overflow ).add( BigInteger.valueOf( sum ) ) );
+    }
+
+  }
+
+}
@@ -1,7 +1,16 @@
 package org.codeswarm.bytesize;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
+import java.text.ParsePosition;
 
+/**
+ * <p>Formats and parses {@link ByteSize}s.</p>
+ *
+ * <p>Formats created by {@link ByteSizeFormatBuilder} are safe for concurrent
+ * use by multiple threads without external synchronization.</p>
+ */
 public interface ByteSizeFormat {
 
   public enum WordLength { FULL, ABBREVIATION }
@@ -17,6 +26,110 @@ public interface ByteSizeFormat {
    */
   String format( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength );
 
+  /**
+   * Appends the same text as {@link #format(ByteSize, WordLength)} to {@code out}.
+   */
+  default void formatTo( ByteSize byteSize, WordLength wordLength, StringBuilder out ) {
+    out.append( format( byteSize, wordLength ) );
+  }
+
+  /**
+   * Appends the same text as {@link #format(ByteSize, ByteSizeUnit, WordLength)} to {@code out}.
+   */
+  default void formatTo( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength, StringBuilder out ) {
+    out.append( format( byteSize, unit, wordLength ) );
+  }
+
+  /**
+   * Appends the same text as {@link #format(ByteSize, WordLength)} to {@code out}.
+   */
+  default void formatTo( ByteSize byteSize, WordLength wordLength, Appendable out )
+      throws IOException {
+    out.append( format( byteSize, wordLength ) );
+  }
+
+  /**
+   * Appends the same text as {@link #format(ByteSize, ByteSizeUnit, WordLength)} to {@code out}.
+   */
+  default void formatTo( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength, Appendable out )
+      throws IOException {
+    out.append( format( byteSize, unit, wordLength ) );
+  }
+
+  /**
+   * @return An object whose {@code toString()} is {@link #format(ByteSize, WordLength)},
+   * computed only when it is first called.
+   */
+  default LazyFormattedByteSize lazy( ByteSize byteSize, WordLength wordLength ) {
+    return new LazyFormattedByteSize( this, byteSize, null, wordLength );
+  }
+
+  /**
+   * @return An object whose {@code toString()} is {@link #format(ByteSize, ByteSizeUnit, WordLength)},
+   * computed only when it is first called.
+   */
+  default LazyFormattedByteSize lazy( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength ) {
+    return new LazyFormattedByteSize( this, byteSize, unit, wordLength );
+  }
+
+  /**
+   * Renders a string representation of {@code rate}, such as {@code "12.3 MiB/s"},
+   * in the unit that {@link #format(ByteSize, WordLength)} would choose for the
+   * amount transferred in one second.
+   */
+  default String format( ByteRate rate, WordLength wordLength ) {
+    StringBuilder out = new StringBuilder();
+    formatTo( rate, wordLength, out );
+    return out.toString();
+  }
+
+  /**
+   * <p>Appends the same text as {@link #format(ByteRate, WordLength)} to {@code out}.</p>
+   *
+   * <p>This default has no resource bundle to take words from, so it always
+   * appends the English {@code "/s"} or {@code " per second"}. An
+   * {@link AbstractByteSizeFormat} uses the {@code "per second abbreviation"}
+   * and {@code "per second full"} resources of its bundle instead; other
+   * formats that are not in English should override this.</p>
+   */
+  default void formatTo( ByteRate rate, WordLength wordLength, StringBuilder out ) {
+    formatTo( rate.perSecond(), wordLength, out );
+    out.append( wordLength == WordLength.ABBREVIATION ? "/s" : " per second" );
+  }
+
   ByteSize parse( String s ) throws ParseException;
 
+  /**
+   * <p>Parses the region {@code s[start, end)} in the same way as {@link #parse(String)},
+   * without copying it where the implementation allows.</p>
+   *
+   * @param position On success, its index is set to {@code end}. On failure, its
+   *                 error index is set to the index in {@code s} where the error
+   *                 was found, and its index is left unchanged.
+   * @return The parsed size, or {@code null} if the region could not be parsed.
+   */
+  default ByteSize parse( CharSequence s, int start, int end, ParsePosition position ) {
+    try {
+      ByteSize byteSize = parse( s.subSequence( start, end ).toString() );
+      position.setIndex( end );
+      return byteSize;
+    } catch ( ParseException e ) {
+      position.setErrorIndex( start + e.getErrorOffset() );
+      return null;
+    }
+  }
+
+  /**
+   * <p>Parses the UTF-8 text in {@code bytes[start, end)}. The indices are absolute
+   * byte indices; the buffer's position and limit are ignored and left unchanged.
+   * ASCII text is parsed in place.</p>
+   *
+   * @param position As for {@link #parse(CharSequence, int, int, ParsePosition)},
+   *                 in bytes.
+   * @return The parsed size, or {@code null} if the region could not be parsed.
+   */
+  default ByteSize parse( ByteBuffer bytes, int start, int end, ParsePosition position ) {
+    return ByteBufferText.parse( this, bytes, start, end, position );
+  }
+
 }
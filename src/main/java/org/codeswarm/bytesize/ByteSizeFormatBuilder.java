@@ -1,7 +1,9 @@
 package org.codeswarm.bytesize;
 
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -14,6 +16,7 @@ public class ByteSizeFormatBuilder {
   private Locale locale;
   private ResourceBundle resourceBundle;
   private NumberFormat numberFormat;
+  private ByteSizeFormatCache cache = ByteSizeFormatCache.getDefault();
 
   public ByteSizeFormatBuilder locale( Locale locale ) {
     this.locale = locale;
@@ -45,13 +48,43 @@ public class ByteSizeFormatBuilder {
     return this;
   }
 
+  /**
+   * @param cache Where {@link #build()} looks for a format built with the same
+   *              configuration, or {@code null} to always build a new one.
+   *              By default this is {@link ByteSizeFormatCache#getDefault()}.
+   */
+  public ByteSizeFormatBuilder cache( ByteSizeFormatCache cache ) {
+    this.cache = cache;
+    return this;
+  }
+
+  /**
+   * <p>The returned format is immutable and safe for concurrent use by
+   * multiple threads. The {@link NumberFormat} given to this builder is
+   * copied, and each thread formats and parses with its own copy, so
+   * changing it afterwards does not affect the format.</p>
+   *
+   * <p>Unless caching has been turned off, a format built earlier with an
+   * equal configuration (the same locale, resource bundle, units and unit
+   * systems, and an equal number format) may be returned.</p>
+   */
   public ByteSizeFormat build() {
-    Impl impl = new Impl();
-    impl.numberFormat = getNumberFormat();
-    impl.resourceBundle = getResourceBundle();
-    impl.units = getUnits();
-    impl.unitSystem = getUnitSystem();
-    return impl;
+    if ( cache == null ) {
+      return newFormat();
+    }
+    ByteSizeFormatCache.Key key = new ByteSizeFormatCache.Key(
+      getLocale(), resourceBundle, numberFormat, unitSystem, unitSystems, units );
+    return cache.get( key, () -> {
+      Impl format = newFormat();
+      // compile the unit words now rather than on the first call
+      format.getUnitVocabulary();
+      format.getUnitThresholds();
+      return format;
+    } );
+  }
+
+  private Impl newFormat() {
+    return new Impl( getLocale(), getNumberFormat(), getResourceBundle(), getUnits(), getUnitSystem() );
   }
 
   private NumberFormat getNumberFormat() {
@@ -97,13 +130,80 @@ public class ByteSizeFormatBuilder {
 
   static class Impl extends AbstractByteSizeFormat {
 
-    private NumberFormat numberFormat;
-    private ResourceBundle resourceBundle;
-    private Collection<ByteSizeUnit> units;
-    private ByteSizeUnitSystem unitSystem;
+    private final Locale locale;
+    private final ThreadLocal<NumberFormat> numberFormat;
+    private final DecimalScanner decimalScanner;
+    private final DecimalRenderer decimalRenderer;
+    private final ResourceBundle resourceBundle;
+    private final Collection<ByteSizeUnit> units;
+    private final ByteSizeUnitSystem unitSystem;
+
+    /** Computed on first use; the units, resource bundle and unit system never change. */
+    private volatile UnitVocabulary unitVocabulary;
+    private volatile UnitThresholds unitThresholds;
+
+    Impl( Locale locale, NumberFormat numberFormat, ResourceBundle resourceBundle,
+          Collection<ByteSizeUnit> units, ByteSizeUnitSystem unitSystem ) {
+
+      this.locale = locale;
+
+      // NumberFormat is not thread-safe, so every thread gets its own clone
+      final NumberFormat prototype = (NumberFormat) numberFormat.clone();
+      this.numberFormat = new ThreadLocal<NumberFormat>() {
+        protected NumberFormat initialValue() {
+          synchronized ( prototype ) {
+            return (NumberFormat) prototype.clone();
+          }
+        }
+      };
+      this.decimalScanner = DecimalScanner.of( prototype );
+      this.decimalRenderer = DecimalRenderer.of( prototype );
+      this.resourceBundle = resourceBundle;
+      this.units = Collections.unmodifiableList( new ArrayList<ByteSizeUnit>( units ) );
+      this.unitSystem = unitSystem;
+    }
 
     protected NumberFormat getNumberFormat() {
-      return numberFormat;
+      return numberFormat.get();
+    }
+
+    /*
+     * Every thread's number format is a copy of the same prototype,
+     * so one scanner and one renderer serve all of them.
+     */
+
+    DecimalScanner getDecimalScanner( NumberFormat numberFormat ) {
+      return decimalScanner;
+    }
+
+    DecimalRenderer getDecimalRenderer( NumberFormat numberFormat ) {
+      return decimalRenderer;
+    }
+
+    Locale getLocale() {
+      return locale;
+    }
+
+    UnitVocabulary getUnitVocabulary() {
+      UnitVocabulary vocabulary = unitVocabulary;
+      if ( vocabulary == null ) {
+        vocabulary = UnitVocabulary.compile( units, resourceBundle );
+        unitVocabulary = vocabulary;
+      }
+      return vocabulary;
+    }
+
+    UnitThresholds getUnitThresholds() {
+      UnitThresholds thresholds = unitThresholds;
+      if ( thresholds == null ) {
+        thresholds = UnitThresholds.of( unitSystem );
+        unitThresholds = thresholds;
+      }
+      return thresholds;
+    }
+
+    ByteSizeUnit selectUnit( ByteSize byteSize ) {
+      return getUnitThresholds().select( byteSize );
     }
 
     protected ResourceBundle getResourceBundle() {
@@ -0,0 +1,186 @@
+package org.codeswarm.bytesize;
+
+import java.text.NumberFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <p>Holds formats built by {@link ByteSizeFormatBuilder}, so that building
+ * a format with the same configuration again returns the existing one instead
+ * of looking up the locale's number format and resource bundle, computing the
+ * units, and compiling the unit words again.</p>
+ *
+ * <p>This is safe because built formats are immutable. The cache is bounded;
+ * when it is full, the format that was added first is removed. Instances are
+ * safe for concurrent use.</p>
+ *
+ * @see ByteSizeFormatBuilder#cache(ByteSizeFormatCache)
+ */
+public final class ByteSizeFormatCache {
+
+  private static final ByteSizeFormatCache DEFAULT = new ByteSizeFormatCache( 128 );
+
+  private final int maximumSize;
+  private final ConcurrentHashMap<Key, ByteSizeFormat> formats = new ConcurrentHashMap<Key, ByteSizeFormat>();
+
+  /** Guarded by itself, as are changes to {@link #formats}; lookups take no lock. */
+  private final Queue<Key> insertionOrder = new ArrayDeque<Key>();
+  private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+  /**
+   * @param maximumSize The number of formats to keep.
+   */
+  public ByteSizeFormatCache( int maximumSize ) {
+    if ( maximumSize < 1 ) {
+      throw new IllegalArgumentException( "maximumSize: " + maximumSize );
+    }
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * @return The cache that builders use unless given another; it holds up to 128 formats.
+   */
+  public static ByteSizeFormatCache getDefault() {
+    return DEFAULT;
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public int size() {
+    return formats.size();
+  }
+
+  public void clear() {
+    synchronized ( insertionOrder ) {
+      formats.clear();
+      insertionOrder.clear();
+    }
+  }
+
+  public String toString() {
+    return "ByteSizeFormatCache{size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount() + "}";
+  }
+
+  /**
+   * @param key Its mutable parts may be the builder's own objects; they are
+   *            copied before the key is stored.
+   */
+  ByteSizeFormat get( Key key, Supplier<ByteSizeFormat> build ) {
+    ByteSizeFormat format = formats.get( key );
+    if ( format != null ) {
+      hits.increment();
+      return format;
+    }
+    misses.increment();
+    format = build.get();
+    Key stored = key.copy();
+    // the map and the queue change together, so that every key is evicted in turn
+    synchronized ( insertionOrder ) {
+      ByteSizeFormat existing = formats.putIfAbsent( stored, format );
+      if ( existing != null ) {
+        return existing;
+      }
+      insertionOrder.add( stored );
+      if ( insertionOrder.size() > maximumSize ) {
+        formats.remove( insertionOrder.remove() );
+      }
+    }
+    return format;
+  }
+
+  /**
+   * The configuration of a {@link ByteSizeFormatBuilder}. Units and unit systems
+   * are compared by identity, because units of equal size may have different words.
+   */
+  static final class Key {
+
+    final Locale locale;
+    final ResourceBundle resourceBundle;
+    final NumberFormat numberFormat;
+    final ByteSizeUnitSystem unitSystem;
+    final Map<String, ByteSizeUnitSystem> unitSystems;
+    final ByteSizeUnit[] units;
+    final int hashCode;
+
+    Key( Locale locale, ResourceBundle resourceBundle, NumberFormat numberFormat,
+         ByteSizeUnitSystem unitSystem, Map<String, ByteSizeUnitSystem> unitSystems,
+         Collection<ByteSizeUnit> units ) {
+
+      this( locale, resourceBundle, numberFormat, unitSystem, unitSystems,
+        units == null ? null : units.toArray( new ByteSizeUnit[units.size()] ) );
+    }
+
+    private Key( Locale locale, ResourceBundle resourceBundle, NumberFormat numberFormat,
+                 ByteSizeUnitSystem unitSystem, Map<String, ByteSizeUnitSystem> unitSystems,
+                 ByteSizeUnit[] units ) {
+
+      this.locale = locale;
+      this.resourceBundle = resourceBundle;
+      this.numberFormat = numberFormat;
+      this.unitSystem = unitSystem;
+      this.unitSystems = unitSystems;
+      this.units = units;
+      int h = locale.hashCode();
+      h = 31 * h + System.identityHashCode( resourceBundle );
+      h = 31 * h + ( numberFormat == null ? 0 : numberFormat.hashCode() );
+      h = 31 * h + System.identityHashCode( unitSystem );
+      h = 31 * h + ( unitSystems == null ? 0 : unitSystems.keySet().hashCode() );
+      if ( units != null ) {
+        for ( ByteSizeUnit unit : units ) {
+          h = 31 * h + System.identityHashCode( unit );
+        }
+      }
+      this.hashCode = h;
+    }
+
+    Key copy() {
+      return new Key( locale, resourceBundle,
+        numberFormat == null ? null : (NumberFormat) numberFormat.clone(),
+        unitSystem,
+        unitSystems == null ? null : new HashMap<String, ByteSizeUnitSystem>( unitSystems ),
+        units );
+    }
+
+    public boolean equals( Object o ) {
+      if ( this == o ) return true;
+      if ( ! ( o instanceof Key ) ) return false;
+      Key that = (Key) o;
+      return hashCode == that.hashCode
+        && locale.equals( that.locale )
+        && resourceBundle == that.resourceBundle
+        && unitSystem == that.unitSystem
+        && sameUnits( units, that.units )
+        && Objects.equals( unitSystems, that.unitSystems )
+        && Objects.equals( numberFormat, that.numberFormat );
+    }
+
+    private static boolean sameUnits( ByteSizeUnit[] a, ByteSizeUnit[] b ) {
+      if ( a == null || b == null ) {
+        return a == b;
+      }
+      if ( a.length != b.length ) {
+        return false;
+      }
+      for ( int i = 0; i < a.length; i++ ) {
+        if ( a[i] != b[i] ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
+}
@@ -0,0 +1,46 @@
+package org.codeswarm.bytesize;
+
+import java.util.Locale;
+
+/**
+ * <p>Is told about every format and parse call, once installed with
+ * {@link ByteSizeInstrumentation#setListener}.</p>
+ *
+ * <p>Calls are reported by {@link AbstractByteSizeFormat} (and so by every format
+ * from {@link ByteSizeFormatBuilder}) and by the static {@code format} and
+ * {@code parse} methods of {@link ByteSizeFormats}. While a listener is
+ * installed, the column formatting methods of {@link ByteSizeColumns} call the
+ * format for each value, and so report each one; bulk parsing, such as
+ * {@link ByteSizeColumns#parseAll}, is not reported value by value.</p>
+ *
+ * <p>Methods are called on the thread that made the call, just after it
+ * completes, so they must be thread-safe, quick, and must not throw.</p>
+ *
+ * @see ByteSizeFormatMetrics
+ */
+public interface ByteSizeFormatListener {
+
+  /**
+   * @param locale The locale of the format's resource bundle.
+   * @param nanos How long the call took.
+   */
+  default void formatted( Locale locale, long nanos ) {
+  }
+
+  /**
+   * @param locale The locale of the format's resource bundle.
+   * @param nanos How long the call took.
+   */
+  default void parsed( Locale locale, long nanos ) {
+  }
+
+  /**
+   * @param locale The locale of the format's resource bundle.
+   * @param text The text that could not be parsed.
+   * @param errorOffset The index in {@code text} at which the error was found.
+   * @param nanos How long the call took.
+   */
+  default void parseFailed( Locale locale, String text, int errorOffset, long nanos ) {
+  }
+
+}
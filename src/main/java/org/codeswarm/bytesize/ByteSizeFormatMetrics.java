@@ -0,0 +1,130 @@
+package org.codeswarm.bytesize;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A {@link ByteSizeFormatListener} that counts calls, parse failures, time
+ * spent, and calls per locale, for export to a metrics system.</p>
+ *
+ * <pre>
+ * ByteSizeFormatMetrics metrics = new ByteSizeFormatMetrics();
+ * ByteSizeInstrumentation.setListener( metrics );</pre>
+ *
+ * <p>Instances are safe for concurrent use; counts are kept in
+ * {@link LongAdder}s, so that threads do not contend.</p>
+ */
+public final class ByteSizeFormatMetrics implements ByteSizeFormatListener {
+
+  private final ByteSizeFormatListener next;
+  private final LongAdder formatCount = new LongAdder(), formatNanos = new LongAdder();
+  private final LongAdder parseCount = new LongAdder(), parseNanos = new LongAdder();
+  private final LongAdder parseFailureCount = new LongAdder();
+  private final ConcurrentHashMap<Locale, LongAdder> callsByLocale = new ConcurrentHashMap<Locale, LongAdder>();
+
+  public ByteSizeFormatMetrics() {
+    this( null );
+  }
+
+  /**
+   * @param next Also told about every call, or {@code null}.
+   */
+  public ByteSizeFormatMetrics( ByteSizeFormatListener next ) {
+    this.next = next;
+  }
+
+  public void formatted( Locale locale, long nanos ) {
+    formatCount.increment();
+    formatNanos.add( nanos );
+    countLocale( locale );
+    if ( next != null ) {
+      next.formatted( locale, nanos );
+    }
+  }
+
+  public void parsed( Locale locale, long nanos ) {
+    parseCount.increment();
+    parseNanos.add( nanos );
+    countLocale( locale );
+    if ( next != null ) {
+      next.parsed( locale, nanos );
+    }
+  }
+
+  public void parseFailed( Locale locale, String text, int errorOffset, long nanos ) {
+    parseCount.increment();
+    parseFailureCount.increment();
+    parseNanos.add( nanos );
+    countLocale( locale );
+    if ( next != null ) {
+      next.parseFailed( locale, text, errorOffset, nanos );
+    }
+  }
+
+  private void countLocale( Locale locale ) {
+    LongAdder count = callsByLocale.get( locale );
+    if ( count == null ) {
+      count = callsByLocale.computeIfAbsent( locale, l -> new LongAdder() );
+    }
+    count.increment();
+  }
+
+  public long formatCount() {
+    return formatCount.sum();
+  }
+
+  /**
+   * @return The total time spent formatting, in nanoseconds.
+   */
+  public long formatNanos() {
+    return formatNanos.sum();
+  }
+
+  /**
+   * @return The number of parse calls, including those that failed.
+   */
+  public long parseCount() {
+    return parseCount.sum();
+  }
+
+  public long parseFailureCount() {
+    return parseFailureCount.sum();
+  }
+
+  /**
+   * @return The total time spent parsing, in nanoseconds.
+   */
+  public long parseNanos() {
+    return parseNanos.sum();
+  }
+
+  /**
+   * @return A snapshot of the number of format and parse calls made in each locale.
+   */
+  public Map<Locale, Long> callsByLocale() {
+    Map<Locale, Long> snapshot = new HashMap<Locale, Long>();
+    for ( Map.Entry<Locale, LongAdder> entry : callsByLocale.entrySet() ) {
+      snapshot.put( entry.getKey(), entry.getValue().sum() );
+    }
+    return Collections.unmodifiableMap( snapshot );
+  }
+
+  public void reset() {
+    formatCount.reset();
+    formatNanos.reset();
+    parseCount.reset();
+    parseNanos.reset();
+    parseFailureCount.reset();
+    callsByLocale.clear();
+  }
+
+  public String toString() {
+    return "ByteSizeFormatMetrics{formats=" + formatCount() + ", parses=" + parseCount()
+      + ", parseFailures=" + parseFailureCount() + "}";
+  }
+
+}
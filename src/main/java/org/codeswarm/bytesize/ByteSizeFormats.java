@@ -4,7 +4,9 @@ import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.text.DecimalFormat;
+import java.text.FieldPosition;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.text.ParsePosition;
@@ -36,6 +38,24 @@ public final class ByteSizeFormats {
     return resourceBundle.getString( resourceKey );
   }
 
+  /**
+   * Appends the suffix that makes a formatted size into a rate: the
+   * {@code "per second abbreviation"} resource directly, as in {@code "12 MB/s"},
+   * or the {@code "per second full"} resource after a space. Bundles without
+   * these resources get the English words.
+   */
+  static void appendPerSecond( WordLength wordLength, ResourceBundle resourceBundle, StringBuilder out ) {
+    if ( wordLength == WordLength.ABBREVIATION ) {
+      out.append( resource( resourceBundle, "per second abbreviation", "/s" ) );
+    } else {
+      out.append( ' ' ).append( resource( resourceBundle, "per second full", "per second" ) );
+    }
+  }
+
+  private static String resource( ResourceBundle resourceBundle, String key, String fallback ) {
+    return resourceBundle.containsKey( key ) ? resourceBundle.getString( key ) : fallback;
+  }
+
   public static String format(
       ByteSize byteSize,
       ByteSizeUnit unit,
@@ -43,44 +63,145 @@ public final class ByteSizeFormats {
       WordLength wordLength,
       ResourceBundle resourceBundle ) {
 
-    WordType wordType;
+    ByteSizeFormatListener listener = ByteSizeInstrumentation.listener;
+    long begin = listener == null ? 0 : System.nanoTime();
     double number = byteSize.numberOfBytes(unit);
+    WordType wordType = wordType( number, numberFormat, wordLength );
+    String formatted = numberFormat.format(number) + " "
+      + unitWord( unit, wordType, resourceBundle );
+    if ( listener != null ) {
+      listener.formatted( resourceBundle.getLocale(), System.nanoTime() - begin );
+    }
+    return formatted;
+  }
+
+  /**
+   * Like {@link #format(ByteSize, ByteSizeUnit, NumberFormat, WordLength, ResourceBundle)},
+   * but appends to {@code out} and takes the unit words from a compiled vocabulary.
+   *
+   * @param renderer Writes numbers as {@code numberFormat} does, but faster; or {@code null}.
+   */
+  static void formatTo(
+      ByteSize byteSize,
+      ByteSizeUnit unit,
+      NumberFormat numberFormat,
+      DecimalRenderer renderer,
+      WordLength wordLength,
+      UnitVocabulary vocabulary,
+      StringBuilder out ) {
+
+    formatTo( byteSize.numberOfBytes(unit), unit, numberFormat, renderer, wordLength, vocabulary, out );
+  }
+
+  /**
+   * @param number A quantity of {@code unit}s.
+   */
+  static void formatTo(
+      double number,
+      ByteSizeUnit unit,
+      NumberFormat numberFormat,
+      DecimalRenderer renderer,
+      WordLength wordLength,
+      UnitVocabulary vocabulary,
+      StringBuilder out ) {
+
+    if ( renderer != null ) {
+      long rounded = renderer.render( number, out );
+      if ( rounded >= 0 ) {
+        // singular exactly when the number was written as 1
+        WordType wordType = wordLength == WordLength.ABBREVIATION ? WordType.ABBREVIATION
+          : renderer.isOne( rounded ) ? WordType.SINGLE : WordType.PLURAL;
+        out.append( ' ' ).append( vocabulary.word( unit, wordType ) );
+        return;
+      }
+    }
+    WordType wordType = wordType( number, numberFormat, wordLength );
+    NumberScratch scratch = NUMBER_SCRATCH.get();
+    scratch.buffer.setLength( 0 );
+    numberFormat.format( number, scratch.buffer, scratch.position );
+    out.append( scratch.buffer ).append( ' ' ).append( vocabulary.word( unit, wordType ) );
+  }
+
+  private static WordType wordType(
+      double number,
+      NumberFormat numberFormat,
+      WordLength wordLength ) {
+
     if ( wordLength == WordLength.ABBREVIATION ) {
-      wordType = WordType.ABBREVIATION;
+      return WordType.ABBREVIATION;
+    }
+    if ( isOne( number, numberFormat ) ) {
+      return WordType.SINGLE;
     } else {
-      long precision = 1;
-      for ( int i = 0; i < numberFormat.getMaximumFractionDigits(); i++ ) {
-        precision *= 10;
-      }
-      if ( Math.round( precision * number) == precision ) {
-        wordType = WordType.SINGLE;
-      } else {
-        wordType = WordType.PLURAL;
-      }
+      return WordType.PLURAL;
     }
-    return numberFormat.format(number) + " "
-      + unitWord( unit, wordType, resourceBundle );
   }
 
+  /**
+   * The same rule as {@link DecimalRenderer#isOne}: whether {@code numberFormat}
+   * writes {@code number} as 1, once rounded to its maximum fraction digits in
+   * its rounding mode. Like {@link DecimalFormat}, this rounds the shortest
+   * decimal that converts back to the number, but decides ties between two
+   * neighbours on the exact binary value.
+   */
+  static boolean isOne( double number, NumberFormat numberFormat ) {
+    // only numbers in this range can round to 1, in any mode
+    if ( ! ( number > 0 && number < 2 ) ) {
+      return false;
+    }
+    BigDecimal shortest = BigDecimal.valueOf( number );
+    int fractionDigits = Math.min( numberFormat.getMaximumFractionDigits(), 340 );
+    if ( shortest.scale() <= fractionDigits ) {
+      return shortest.compareTo( BigDecimal.ONE ) == 0;
+    }
+    RoundingMode roundingMode = numberFormat instanceof DecimalFormat
+      ? numberFormat.getRoundingMode() : RoundingMode.HALF_EVEN;
+    BigDecimal rounded;
+    switch ( roundingMode ) {
+      case HALF_EVEN:
+      case HALF_UP:
+      case HALF_DOWN:
+        rounded = new BigDecimal( number ).setScale( fractionDigits, roundingMode );
+        break;
+      case UP:
+      case CEILING:
+        // the format writes anything below a tenth of its last digit as zero
+        if ( fractionDigits == 0 && number < 0.1 ) {
+          return false;
+        }
+        rounded = shortest.setScale( fractionDigits, roundingMode );
+        break;
+      default:
+        rounded = shortest.setScale( fractionDigits, roundingMode );
+    }
+    return rounded.compareTo( BigDecimal.ONE ) == 0;
+  }
+
+  /**
+   * {@link NumberFormat} only formats into a {@link StringBuffer};
+   * each thread reuses one rather than allocating per call.
+   */
+  private static final class NumberScratch {
+    final StringBuffer buffer = new StringBuffer();
+    final FieldPosition position = new FieldPosition( 0 );
+  }
+
+  private static final ThreadLocal<NumberScratch> NUMBER_SCRATCH =
+    new ThreadLocal<NumberScratch>() {
+      protected NumberScratch initialValue() {
+        return new NumberScratch();
+      }
+    };
+
+  /**
+   * @return The largest unit in {@code unitSystem} that is not larger than
+   * {@code size}, or the system's first unit if they all are.
+   */
   public static ByteSizeUnit determineReasonableUnit(
       ByteSize size,
       ByteSizeUnitSystem unitSystem ) {
 
-    Iterator<ByteSizeUnit> units = unitSystem.units().iterator();
-    ByteSizeUnit unit, previousUnit;
-    try {
-      unit = units.next();
-    } catch ( NoSuchElementException e ) {
-      throw new IllegalArgumentException("Unit system has no units");
-    }
-    while ( units.hasNext() ) {
-      previousUnit = unit;
-      unit = units.next();
-      if ( unit.compareTo(size) > 0 ) {
-        return previousUnit;
-      }
-    }
-    return unit;
+    return UnitThresholds.select( unitSystem, size );
   }
 
   public static ByteSize parse(
@@ -90,43 +211,92 @@ public final class ByteSizeFormats {
       ResourceBundle resourceBundle )
       throws ParseException {
 
-    String $ = s.trim();
+    ByteSizeFormatListener listener = ByteSizeInstrumentation.listener;
+    if ( listener == null ) {
+      return parse( s, numberFormat, UnitVocabulary.compile( units, resourceBundle ) );
+    }
+    long begin = System.nanoTime();
+    ParsePosition position = new ParsePosition( 0 );
+    ByteSize byteSize = parse( s, 0, s.length(), numberFormat,
+      UnitVocabulary.compile( units, resourceBundle ), position );
+    ByteSizeInstrumentation.reportParse( listener, resourceBundle.getLocale(), s, 0, s.length(),
+      byteSize != null, position.getErrorIndex(), System.nanoTime() - begin );
+    if ( byteSize == null ) {
+      throw new ParseException( s, position.getErrorIndex() );
+    }
+    return byteSize;
+  }
 
-    class UnitWord implements Comparable<UnitWord> {
+  static ByteSize parse(
+      final String s,
+      NumberFormat numberFormat,
+      UnitVocabulary vocabulary )
+      throws ParseException {
 
-      final ByteSizeUnit unit;
-      final String word;
+    ParsePosition position = new ParsePosition( 0 );
+    ByteSize byteSize = parse( s, 0, s.length(), numberFormat, vocabulary, position );
+    if ( byteSize == null ) {
+      throw new ParseException( s, position.getErrorIndex() );
+    }
+    return byteSize;
+  }
 
-      UnitWord( ByteSizeUnit unit, String word ) {
-        this.unit = unit;
-        this.word = word;
-      }
+  /**
+   * <p>Parses {@code s[regionStart, regionEnd)}, ignoring leading and trailing whitespace.</p>
+   *
+   * <p>If {@code s} is a {@link String}, no part of it is copied unless the number
+   * in the region runs on into the text after {@code regionEnd}.</p>
+   *
+   * @param position On success, its index is set to {@code regionEnd}. On failure,
+   *                 its error index is set to the index in {@code s} of the error.
+   * @return The parsed size, or {@code null} on failure.
+   */
+  static ByteSize parse(
+      CharSequence s,
+      int regionStart,
+      int regionEnd,
+      NumberFormat numberFormat,
+      UnitVocabulary vocabulary,
+      ParsePosition position ) {
 
-      public int compareTo( UnitWord o ) {
-        // sort the unit string list by string length descending - this prevents
-        // us from finding "bytes" when we should have found "kilobytes"
-        return o.word.compareTo( word );
-      }
-    }
-    List<UnitWord> unitWords = new ArrayList<UnitWord>();
-    for ( ByteSizeUnit unit : units ) {
-      for ( WordType wordType : WordType.values() ) {
-        String word = unitWord( unit, wordType, resourceBundle );
-        unitWords.add( new UnitWord( unit, word ) );
-      }
-    }
+    return parse( s, regionStart, regionEnd, numberFormat, DecimalScanner.of( numberFormat ),
+      vocabulary, position );
+  }
+
+  /**
+   * @param scanner Parses common numbers faster than {@code numberFormat},
+   *                with the same results; or {@code null}.
+   */
+  static ByteSize parse(
+      CharSequence s,
+      int regionStart,
+      int regionEnd,
+      NumberFormat numberFormat,
+      DecimalScanner scanner,
+      UnitVocabulary vocabulary,
+      ParsePosition position ) {
 
-    Collections.sort( unitWords );
+    int start = regionStart, end = regionEnd;
+    while ( start < end && s.charAt( start ) <= ' ' ) start++;
+    while ( end > start && s.charAt( end - 1 ) <= ' ' ) end--;
 
     // default to byte if parsing does not find a unit
     ByteSizeUnit unit = ByteSizeUnits.BYTE;
 
     // find a unit and remove it from the parsed string
-    for ( UnitWord unitWord : unitWords ) {
-      if ($.endsWith(unitWord.word)) {
-        unit = unitWord.unit;
-        $ = $.substring( 0, $.length() - unitWord.word.length() ).trim();
-        break;
+    int match = vocabulary.match( s, start, end );
+    if ( match >= 0 ) {
+      unit = vocabulary.unit( match );
+      end -= vocabulary.length( match );
+      while ( end > start && s.charAt( end - 1 ) <= ' ' ) end--;
+    }
+
+    if ( scanner != null ) {
+      ByteSize byteSize = scanner.parse( s, start, end, unit );
+      if ( byteSize != null ) {
+        position.setIndex( regionEnd );
+        position.setErrorIndex( -1 );
+        return byteSize;
       }
     }
 
@@ -137,18 +307,42 @@ public final class ByteSizeFormats {
       decimalFormat.setParseBigDecimal( true );
     }
 
-    // parse the number, throwing ParseException upon failure
-    Number n;
-    {
-      ParsePosition parsePosition = new ParsePosition( 0 );
-      n = numberFormat.parse( $, parsePosition );
-      int parsePositionIndex = parsePosition.getIndex();
-      if ( parsePositionIndex != $.length() ) {
-        throw new ParseException( s, parsePositionIndex );
-      }
+    // parse the number in place; offset maps indices in text to indices in s
+    String text;
+    int offset;
+    if ( s instanceof String ) {
+      text = (String) s;
+      offset = 0;
+    } else {
+      text = s.subSequence( start, end ).toString();
+      offset = start;
     }
+    int index = position.getIndex();
+    position.setIndex( start - offset );
+    position.setErrorIndex( -1 );
+    Number n = numberFormat.parse( text, position );
+    if ( n != null && position.getIndex() > end - offset ) {
+      // the number continues past the region, so parse a copy of the region alone
+      text = s.subSequence( start, end ).toString();
+      offset = start;
+      position.setIndex( 0 );
+      n = numberFormat.parse( text, position );
+    }
+    if ( n == null || position.getIndex() != end - offset ) {
+      int errorIndex = n == null ? position.getErrorIndex() : position.getIndex();
+      position.setIndex( index );
+      position.setErrorIndex( Math.max( errorIndex, start - offset ) + offset );
+      return null;
+    }
+    position.setIndex( regionEnd );
+
+    return toByteSize( n, unit );
+  }
 
-    // constuct a ByteSize, preferring ExactByteSize if n is an integer
+  /**
+   * Constructs a ByteSize, preferring ExactByteSize if n is an integer.
+   */
+  private static ByteSize toByteSize( Number n, ByteSizeUnit unit ) {
     if ( n instanceof BigDecimal ) {
       BigDecimal bigDecimal = (BigDecimal) n;
       try {
@@ -0,0 +1,259 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+
+/**
+ * <p>Counts how many sizes have been recorded in each of a set of logarithmic
+ * ranges, for percentiles such as the median or 99th percentile of a stream of
+ * payload sizes.</p>
+ *
+ * <p>Sizes are grouped by bit length, and each group is divided into
+ * 2<sup>precision</sup> equal sub-buckets, so a size is known to within
+ * 1/2<sup>precision</sup> of its value (about 3% with the default precision
+ * of 5). Sizes below 2<sup>precision</sup> are counted exactly. Because every
+ * power of two is a bucket boundary, the boundaries between the units of
+ * {@link ByteSizeUnits#IEC} are exact; a boundary between units of
+ * {@link ByteSizeUnits#SI} may fall inside a bucket, which is then counted in
+ * the range of the smaller unit.</p>
+ *
+ * <p>Recording is one atomic increment and does not allocate, so instances can
+ * be shared by many threads. Queries read the buckets one at a time and are not
+ * an atomic snapshot of concurrent recordings.</p>
+ */
+public final class ByteSizeHistogram {
+
+  private static final double[] SUMMARY_PERCENTILES = { 50, 90, 99, 99.9 };
+
+  private final int precision;
+  private final AtomicLongArray counts;
+
+  /**
+   * Creates a histogram with a precision of 5 bits.
+   */
+  public ByteSizeHistogram() {
+    this( 5 );
+  }
+
+  /**
+   * @param precision The number of bits of each size that are kept, from 1 to 12.
+   *                  Each increment doubles the memory used (15 KB at 5 bits).
+   */
+  public ByteSizeHistogram( int precision ) {
+    if ( precision < 1 || precision > 12 ) {
+      throw new IllegalArgumentException( "precision: " + precision );
+    }
+    this.precision = precision;
+    this.counts = new AtomicLongArray( bucketIndex( Long.MAX_VALUE ) + 1 );
+  }
+
+  /**
+   * @param numberOfBytes A size, which must not be negative.
+   */
+  public void record( long numberOfBytes ) {
+    if ( numberOfBytes < 0 ) {
+      throw new IllegalArgumentException( "Negative size: " + numberOfBytes );
+    }
+    counts.incrementAndGet( bucketIndex( numberOfBytes ) );
+  }
+
+  /**
+   * Records an exact size, or an approximate size rounded to the nearest byte.
+   */
+  public void record( ByteSize byteSize ) {
+    if ( byteSize instanceof ExactByteSize ) {
+      ExactByteSize exact = (ExactByteSize) byteSize;
+      if ( ! ExactByteSizes.isLong( exact ) ) {
+        throw new IllegalArgumentException( "Size out of range: " + exact );
+      }
+      record( ExactByteSizes.longValue( exact ) );
+    } else {
+      record( Math.round( byteSize.numberOfBytes( ByteSizeUnits.BYTE ) ) );
+    }
+  }
+
+  /**
+   * @return The number of sizes recorded.
+   */
+  public long count() {
+    long count = 0;
+    for ( int i = 0; i < counts.length(); i++ ) {
+      count += counts.get( i );
+    }
+    return count;
+  }
+
+  /**
+   * @param percentile From 0 to 100.
+   * @return The largest size in the bucket holding the given percentile,
+   * or zero if nothing has been recorded.
+   */
+  public ExactByteSize percentile( double percentile ) {
+    return percentile( snapshot(), percentile );
+  }
+
+  /**
+   * @return The largest size in the highest bucket holding a recorded size,
+   * or zero if nothing has been recorded.
+   */
+  public ExactByteSize max() {
+    for ( int i = counts.length() - 1; i >= 0; i-- ) {
+      if ( counts.get( i ) != 0 ) {
+        return byteSize( highestValue( i ) );
+      }
+    }
+    return byteSize( 0 );
+  }
+
+  public void reset() {
+    for ( int i = 0; i < counts.length(); i++ ) {
+      counts.set( i, 0 );
+    }
+  }
+
+  /**
+   * <p>Renders the count, common percentiles and maximum, followed by the number
+   * of sizes in each range between consecutive units of {@code unitSystem}:</p>
+   *
+   * <pre>
+   * count: 1000
+   * p50: 8 KiB
+   * p90: 62 KiB
+   * p99: 1.94 MiB
+   * p99.9: 3.88 MiB
+   * max: 3.88 MiB
+   * [0 b, 1 KiB): 113
+   * [1 KiB, 1 MiB): 877
+   * [1 MiB, 1 GiB): 10</pre>
+   *
+   * <p>Ranges before the first and after the last that hold any sizes are omitted.</p>
+   */
+  public String summary( ByteSizeFormat format, ByteSizeUnitSystem unitSystem, WordLength wordLength ) {
+    long[] snapshot = snapshot();
+    long total = 0;
+    for ( long count : snapshot ) {
+      total += count;
+    }
+    List<ByteSizeUnit> units = unitSystem.units();
+    UnitThresholds thresholds = UnitThresholds.of( unitSystem );
+
+    StringBuilder out = new StringBuilder();
+    out.append( "count: " ).append( total ).append( '\n' );
+    for ( double p : SUMMARY_PERCENTILES ) {
+      out.append( 'p' ).append( p == Math.rint( p ) ? Long.toString( (long) p ) : Double.toString( p ) )
+        .append( ": " );
+      ExactByteSize size = percentile( snapshot, p );
+      format.formatTo( size, thresholds.select( size ), wordLength, out );
+      out.append( '\n' );
+    }
+    out.append( "max: " );
+    ExactByteSize max = percentile( snapshot, 100 );
+    format.formatTo( max, thresholds.select( max ), wordLength, out );
+    out.append( '\n' );
+
+    long[] unitCounts = new long[units.size()];
+    for ( int i = 0; i < snapshot.length; i++ ) {
+      if ( snapshot[i] != 0 ) {
+        unitCounts[indexOf( units, thresholds.select( lowestValue( i ) ) )] += snapshot[i];
+      }
+    }
+    int first = 0, last = units.size() - 1;
+    while ( first < last && unitCounts[first] == 0 ) first++;
+    while ( last > first && unitCounts[last] == 0 ) last--;
+    for ( int u = first; u <= last; u++ ) {
+      out.append( '[' );
+      format.formatTo( u == 0 ? byteSize( 0 ) : units.get( u ), units.get( u ), wordLength, out );
+      if ( u + 1 < units.size() ) {
+        out.append( ", " );
+        format.formatTo( units.get( u + 1 ), units.get( u + 1 ), wordLength, out );
+        out.append( "): " );
+      } else {
+        out.append( ", ...): " );
+      }
+      out.append( unitCounts[u] ).append( '\n' );
+    }
+    return out.toString();
+  }
+
+  public String toString() {
+    return "ByteSizeHistogram{count=" + count() + ", max=" + max() + "}";
+  }
+
+  private long[] snapshot() {
+    long[] snapshot = new long[counts.length()];
+    for ( int i = 0; i < snapshot.length; i++ ) {
+      snapshot[i] = counts.get( i );
+    }
+    return snapshot;
+  }
+
+  private ExactByteSize percentile( long[] snapshot, double percentile ) {
+    if ( percentile < 0 || percentile > 100 ) {
+      throw new IllegalArgumentException( "percentile: " + percentile );
+    }
+    long total = 0;
+    for ( long count : snapshot ) {
+      total += count;
+    }
+    if ( total == 0 ) {
+      return byteSize( 0 );
+    }
+    long rank = Math.max( 1, (long) Math.ceil( percentile / 100 * total ) );
+    long seen = 0;
+    for ( int i = 0; i < snapshot.length; i++ ) {
+      seen += snapshot[i];
+      if ( seen >= rank ) {
+        return byteSize( highestValue( i ) );
+      }
+    }
+    // only reachable if rounding put the rank past the total
+    return max();
+  }
+
+  /**
+   * Sizes below 2<sup>precision</sup> have a bucket each. Above that, bucket
+   * {@code (g << precision) + s} is sub-bucket {@code s} of the sizes with
+   * bit length {@code precision + g}.
+   */
+  int bucketIndex( long numberOfBytes ) {
+    int bitLength = 64 - Long.numberOfLeadingZeros( numberOfBytes );
+    if ( bitLength <= precision ) {
+      return (int) numberOfBytes;
+    }
+    int shift = bitLength - precision - 1;
+    // the top bit is implied by the group, so it is cleared from the sub-bucket
+    int subBucket = (int) ( numberOfBytes >>> shift ) - ( 1 << precision );
+    return ( ( shift + 1 ) << precision ) + subBucket;
+  }
+
+  long lowestValue( int bucketIndex ) {
+    int group = bucketIndex >>> precision;
+    if ( group == 0 ) {
+      return bucketIndex;
+    }
+    long subBucket = bucketIndex & ( ( 1 << precision ) - 1 );
+    return ( ( 1L << precision ) + subBucket ) << ( group - 1 );
+  }
+
+  long highestValue( int bucketIndex ) {
+    int group = bucketIndex >>> precision;
+    if ( group == 0 ) {
+      return bucketIndex;
+    }
+    return lowestValue( bucketIndex ) + ( 1L << ( group - 1 ) ) - 1;
+  }
+
+  private static int indexOf( List<ByteSizeUnit> units, ByteSizeUnit unit ) {
+    for ( int i = 0; i < units.size(); i++ ) {
+      if ( units.get( i ) == unit ) {
+        return i;
+      }
+    }
+    throw new IllegalStateException( "Not in unit system: " + unit );
+  }
+
+}
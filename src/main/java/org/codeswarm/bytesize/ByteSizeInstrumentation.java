@@ -0,0 +1,84 @@
+package org.codeswarm.bytesize;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Installs the {@link ByteSizeFormatListener} that format and parse calls
+ * are reported to.</p>
+ *
+ * <p>There is no listener by default. Each call then only reads the
+ * listener field to find that there is none, without reading the clock.</p>
+ */
+public final class ByteSizeInstrumentation {
+
+  private ByteSizeInstrumentation() {}
+
+  /** Read once per call by the instrumented methods. */
+  static volatile ByteSizeFormatListener listener;
+
+  /**
+   * @param listener Receives every call from now on, or {@code null} to stop reporting.
+   */
+  public static void setListener( ByteSizeFormatListener listener ) {
+    ByteSizeInstrumentation.listener = listener;
+  }
+
+  /**
+   * @return The installed listener, or {@code null}.
+   */
+  public static ByteSizeFormatListener getListener() {
+    return listener;
+  }
+
+  /**
+   * @return Whether the JDK Flight Recorder API ({@code jdk.jfr}) is present in this runtime.
+   */
+  public static boolean isFlightRecorderAvailable() {
+    try {
+      Class.forName( "jdk.jfr.Event", false, ByteSizeInstrumentation.class.getClassLoader() );
+      return true;
+    } catch ( ClassNotFoundException | LinkageError e ) {
+      return false;
+    }
+  }
+
+  /**
+   * <p>A listener that commits an {@code org.codeswarm.bytesize.Parse} Flight Recorder
+   * event for every parse that fails or takes at least {@code slowParse}. The event
+   * holds the locale, the text, the error offset, and the time taken. Like any
+   * event, it is only recorded while a recording has it enabled.</p>
+   *
+   * <p>To also collect {@link ByteSizeFormatMetrics}, pass this listener to
+   * {@link ByteSizeFormatMetrics#ByteSizeFormatMetrics(ByteSizeFormatListener)}.</p>
+   *
+   * @throws UnsupportedOperationException If {@link #isFlightRecorderAvailable()} is false.
+   */
+  public static ByteSizeFormatListener flightRecorderListener( long slowParse, TimeUnit unit ) {
+    if ( ! isFlightRecorderAvailable() ) {
+      throw new UnsupportedOperationException( "JDK Flight Recorder is not available" );
+    }
+    // loaded by name: it is compiled separately, against the jdk.jfr of the build JDK
+    try {
+      return (ByteSizeFormatListener) Class.forName( "org.codeswarm.bytesize.FlightRecorderListener" )
+        .getDeclaredConstructor( long.class ).newInstance( unit.toNanos( slowParse ) );
+    } catch ( ReflectiveOperationException | LinkageError e ) {
+      throw new UnsupportedOperationException( "JDK Flight Recorder is not available", e );
+    }
+  }
+
+  /**
+   * Reports a call to {@link AbstractByteSizeFormat#parse(CharSequence, int, int, java.text.ParsePosition)}.
+   *
+   * @param errorIndex The index in {@code s} of the error, if {@code parsed} is false.
+   */
+  static void reportParse( ByteSizeFormatListener listener, Locale locale, CharSequence s,
+                           int start, int end, boolean parsed, int errorIndex, long nanos ) {
+    if ( parsed ) {
+      listener.parsed( locale, nanos );
+    } else {
+      listener.parseFailed( locale, s.subSequence( start, end ).toString(), errorIndex - start, nanos );
+    }
+  }
+
+}
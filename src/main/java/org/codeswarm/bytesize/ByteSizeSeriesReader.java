@@ -0,0 +1,349 @@
+package org.codeswarm.bytesize;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.BLOCK_HEADER_SIZE;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.COUNT;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.FILE_HEADER_SIZE;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.MAGIC;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.MAX;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.MIN;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.PAYLOAD_LENGTH;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.SUM_HIGH;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.SUM_LOW;
+import static org.codeswarm.bytesize.ByteSizeSeriesWriter.VERSION;
+
+/**
+ * <p>Answers range queries on a series file written by {@link ByteSizeSeriesWriter}.</p>
+ *
+ * <p>The file is memory-mapped when the reader is created, so it is read by the
+ * operating system's page cache rather than into the heap; only the offset of
+ * each block is kept. Sums, minimums and maximums over a range use the block
+ * headers for every block that lies wholly inside it, so only the blocks at
+ * either end are decoded; a maximum also skips any block whose header shows it
+ * cannot hold a larger size than those already seen, and likewise for a minimum.</p>
+ *
+ * <p>The reader sees the sizes that were in the file when it was created;
+ * sizes appended later, and a block that is still being written, are not read.
+ * Ranges are given as a start index, inclusive, and an end index, exclusive.</p>
+ *
+ * <p>Instances are safe for concurrent use. There is nothing to close: the
+ * file is closed once mapped, and the mapping is released when the reader is
+ * garbage collected.</p>
+ */
+public final class ByteSizeSeriesReader {
+
+  /** The largest mapping, which {@link FileChannel#map} limits to the int range. */
+  static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+  private final MappedByteBuffer[] segments;
+  private final int blocks;
+  private final int[] segmentOf;
+  private final int[] positionOf;
+  private final long[] first;
+
+  /**
+   * @throws IOException If the file is not a series file.
+   */
+  public ByteSizeSeriesReader( Path file ) throws IOException {
+    this( file, MAX_SEGMENT_SIZE );
+  }
+
+  ByteSizeSeriesReader( Path file, long segmentSize ) throws IOException {
+    try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+      Index index = index( channel );
+      blocks = index.blocks;
+      first = index.first;
+      segmentOf = new int[blocks];
+      positionOf = new int[blocks];
+      List<MappedByteBuffer> mapped = new ArrayList<MappedByteBuffer>();
+      int b = 0;
+      while ( b < blocks ) {
+        // map as many whole blocks as fit in one segment
+        long start = index.offsets[b];
+        int last = b;
+        while ( last + 1 < blocks && index.offsets[last + 2] - start <= segmentSize ) {
+          last++;
+        }
+        for ( int i = b; i <= last; i++ ) {
+          segmentOf[i] = mapped.size();
+          positionOf[i] = (int) ( index.offsets[i] - start );
+        }
+        mapped.add( channel.map( FileChannel.MapMode.READ_ONLY, start, index.offsets[last + 1] - start ) );
+        b = last + 1;
+      }
+      segments = mapped.toArray( new MappedByteBuffer[mapped.size()] );
+    }
+  }
+
+  /**
+   * @return The number of sizes in the file.
+   */
+  public long size() {
+    return first[blocks];
+  }
+
+  public ExactByteSize get( long index ) {
+    checkIndex( index );
+    int b = blockOf( index );
+    ByteBuffer in = payload( b );
+    long n = 0;
+    for ( long i = first[b]; i <= index; i++ ) {
+      n += next( in );
+    }
+    return ByteSizes.byteSize( n );
+  }
+
+  /**
+   * Reads {@code out.length} sizes, starting at index {@code from}.
+   */
+  public void read( long from, long[] out ) {
+    long to = from + out.length;
+    checkRange( from, to );
+    int k = 0;
+    for ( int b = from < to ? blockOf( from ) : blocks; k < out.length; b++ ) {
+      ByteBuffer in = payload( b );
+      long end = Math.min( to, first[b + 1] );
+      long n = 0;
+      for ( long i = first[b]; i < end; i++ ) {
+        n += next( in );
+        if ( i >= from ) {
+          out[k++] = n;
+        }
+      }
+    }
+  }
+
+  public ExactByteSize sum() {
+    return sum( 0, size() );
+  }
+
+  /**
+   * @return The sum of the sizes from index {@code from}, inclusive, to {@code to},
+   * exclusive; zero if the range is empty.
+   */
+  public ExactByteSize sum( long from, long to ) {
+    checkRange( from, to );
+    Sum sum = new Sum();
+    long i = from;
+    for ( int b = from < to ? blockOf( from ) : blocks; i < to; b++ ) {
+      long end = Math.min( to, first[b + 1] );
+      if ( i == first[b] && end == first[b + 1] ) {
+        sum.add( header( b, SUM_HIGH ), header( b, SUM_LOW ) );
+      } else {
+        ByteBuffer in = payload( b );
+        long n = 0;
+        for ( long j = first[b]; j < end; j++ ) {
+          n += next( in );
+          if ( j >= i ) {
+            sum.add( n );
+          }
+        }
+      }
+      i = end;
+    }
+    return sum.result();
+  }
+
+  /**
+   * @throws NoSuchElementException If the range is empty.
+   */
+  public ExactByteSize max( long from, long to ) {
+    return ByteSizes.byteSize( extreme( from, to, true ) );
+  }
+
+  /**
+   * @throws NoSuchElementException If the range is empty.
+   */
+  public ExactByteSize min( long from, long to ) {
+    return ByteSizes.byteSize( extreme( from, to, false ) );
+  }
+
+  private long extreme( long from, long to, boolean largest ) {
+    checkRange( from, to );
+    if ( from == to ) {
+      throw new NoSuchElementException( "Empty range: " + from );
+    }
+    int offset = largest ? MAX : MIN;
+    long best = largest ? Long.MIN_VALUE : Long.MAX_VALUE;
+    long i = from;
+    for ( int b = blockOf( from ); i < to; b++ ) {
+      long end = Math.min( to, first[b + 1] );
+      long bound = header( b, offset );
+      if ( largest ? bound > best : bound < best ) {
+        if ( i == first[b] && end == first[b + 1] ) {
+          best = bound;
+        } else {
+          ByteBuffer in = payload( b );
+          long n = 0;
+          for ( long j = first[b]; j < end; j++ ) {
+            n += next( in );
+            if ( j >= i && ( largest ? n > best : n < best ) ) {
+              best = n;
+            }
+          }
+        }
+      }
+      i = end;
+    }
+    return best;
+  }
+
+  private long header( int b, int offset ) {
+    return segments[segmentOf[b]].getLong( positionOf[b] + offset );
+  }
+
+  private ByteBuffer payload( int b ) {
+    ByteBuffer in = segments[segmentOf[b]].duplicate();
+    ( (Buffer) in ).position( positionOf[b] + BLOCK_HEADER_SIZE );
+    return in;
+  }
+
+  private static long next( ByteBuffer in ) {
+    return ByteSizeCodec.unZigZag( ByteSizeCodec.getVarint( in ) );
+  }
+
+  /**
+   * @return The block holding the size at {@code index}.
+   */
+  private int blockOf( long index ) {
+    int b = Arrays.binarySearch( first, 0, blocks, index );
+    return b >= 0 ? b : -b - 2;
+  }
+
+  private void checkIndex( long index ) {
+    if ( index < 0 || index >= size() ) {
+      throw new IndexOutOfBoundsException( "Index " + index + ", size " + size() );
+    }
+  }
+
+  private void checkRange( long from, long to ) {
+    if ( from < 0 || from > to || to > size() ) {
+      throw new IndexOutOfBoundsException( "Range " + from + " to " + to + ", size " + size() );
+    }
+  }
+
+  public String toString() {
+    return "ByteSizeSeriesReader{size=" + size() + ", blocks=" + blocks + "}";
+  }
+
+  /**
+   * The complete blocks of a series file.
+   */
+  static final class Index {
+
+    int blocks;
+
+    /** The file offset of each block, and then of the end of the last block. */
+    long[] offsets = new long[16];
+
+    /** The index of the first size in each block, and then the number of sizes. */
+    long[] first = new long[16];
+
+    /** The offset just after the last complete block. */
+    long end;
+
+    void add( long offset, long nextFirst, long nextOffset ) {
+      if ( blocks + 2 > offsets.length ) {
+        offsets = Arrays.copyOf( offsets, offsets.length * 2 );
+        first = Arrays.copyOf( first, first.length * 2 );
+      }
+      offsets[blocks] = offset;
+      blocks++;
+      offsets[blocks] = nextOffset;
+      first[blocks] = nextFirst;
+    }
+
+  }
+
+  /**
+   * Reads the file and block headers, stopping before a block that is cut short
+   * by the end of the file.
+   *
+   * @throws IOException If the file is not a series file, or a block header is invalid.
+   */
+  static Index index( FileChannel channel ) throws IOException {
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate( BLOCK_HEADER_SIZE );
+    ( (Buffer) header ).limit( FILE_HEADER_SIZE );
+    if ( size < FILE_HEADER_SIZE || ! readFully( channel, header, 0 )
+      || header.getInt( 0 ) != MAGIC ) {
+      throw new IOException( "Not a byte size series file" );
+    }
+    if ( header.getInt( 4 ) != VERSION ) {
+      throw new IOException( "Unsupported series file version: " + header.getInt( 4 ) );
+    }
+    Index index = new Index();
+    long position = FILE_HEADER_SIZE;
+    index.offsets[0] = position;
+    while ( position + BLOCK_HEADER_SIZE <= size ) {
+      ( (Buffer) header ).clear();
+      if ( ! readFully( channel, header, position ) ) {
+        break;
+      }
+      int count = header.getInt( COUNT ), length = header.getInt( PAYLOAD_LENGTH );
+      if ( count <= 0 || length < count || length > 10L * count ) {
+        throw new IOException( "Invalid block header at byte " + position );
+      }
+      long next = position + BLOCK_HEADER_SIZE + length;
+      if ( next > size ) {
+        break;
+      }
+      index.add( position, index.first[index.blocks] + count, next );
+      position = next;
+    }
+    index.end = position;
+    return index;
+  }
+
+  private static boolean readFully( FileChannel channel, ByteBuffer buffer, long position ) throws IOException {
+    while ( buffer.hasRemaining() ) {
+      int read = channel.read( buffer, position );
+      if ( read < 0 ) {
+        return false;
+      }
+      position += read;
+    }
+    return true;
+  }
+
+  /**
+   * A 128-bit two's complement sum, which a sum of longs cannot overflow
+   * until there are 2<sup>64</sup> of them.
+   */
+  static final class Sum {
+
+    long high, low;
+
+    void add( long n ) {
+      add( n >> 63, n );
+    }
+
+    void add( long high, long low ) {
+      long sum = this.low + low;
+      this.high += high + ( Long.compareUnsigned( sum, this.low ) < 0 ? 1 : 0 );
+      this.low = sum;
+    }
+
+    ExactByteSize result() {
+      if ( high == ( low >> 63 ) ) {
+        return ByteSizes.byteSize( low );
+      }
+      BigInteger unsignedLow = BigInteger.valueOf( low >>> 1 ).shiftLeft( 1 ).or( BigInteger.valueOf( low & 1 ) );
+      return ByteSizes.byteSize( BigInteger.valueOf( high ).shiftLeft( 64 ).add( unsignedLow ) );
+    }
+
+  }
+
+}
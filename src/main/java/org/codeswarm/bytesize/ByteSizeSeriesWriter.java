@@ -0,0 +1,180 @@
+package org.codeswarm.bytesize;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Appends byte sizes to a series file, which {@link ByteSizeSeriesReader}
+ * reads back and answers range queries on.</p>
+ *
+ * <p>A series file is an eight-byte file header (the ASCII characters
+ * {@code BSZS} and a version number, as big-endian ints) followed by blocks of
+ * up to {@value #DEFAULT_BLOCK_LENGTH} sizes. Each block starts with a
+ * {@value #BLOCK_HEADER_SIZE}-byte header of big-endian fields:</p>
+ *
+ * <ul>
+ *   <li>the number of sizes in the block, and the length of its payload, as ints;</li>
+ *   <li>the smallest and largest size, as longs;</li>
+ *   <li>the sum of the sizes, as a 128-bit two's complement number in two longs,
+ *       high half first, so that it cannot overflow.</li>
+ * </ul>
+ *
+ * <p>The payload holds the difference between each size and the one before it
+ * (the first is taken relative to zero), as zig-zag varints in the encoding of
+ * {@link ByteSizeCodec}. A series of similar sizes therefore takes one or two
+ * bytes per size, and the headers let a reader answer sums, minimums and
+ * maximums over whole blocks without decoding them.</p>
+ *
+ * <p>Opening an existing file appends to it. A block that was only partly
+ * written, because a writer was stopped while writing it, is removed first.
+ * Each {@link #flush()} ends the current block, so flushing after every size
+ * takes {@value #BLOCK_HEADER_SIZE} extra bytes per size.</p>
+ *
+ * <p>Instances are not safe for concurrent use, and a file must only have one
+ * writer at a time.</p>
+ */
+public final class ByteSizeSeriesWriter implements Closeable, Flushable {
+
+  static final int MAGIC = 0x42535A53, VERSION = 1;
+  static final int FILE_HEADER_SIZE = 8;
+  static final int BLOCK_HEADER_SIZE = 40;
+  static final int COUNT = 0, PAYLOAD_LENGTH = 4, MIN = 8, MAX = 16, SUM_HIGH = 24, SUM_LOW = 32;
+  static final int DEFAULT_BLOCK_LENGTH = 4096;
+
+  private final FileChannel channel;
+  private final long[] block;
+  private final ByteBuffer buffer;
+  private int count;
+  private long position;
+  private long size;
+
+  /**
+   * Creates the file if it does not exist, and otherwise appends to it.
+   *
+   * @throws IOException If the file exists but is not a series file.
+   */
+  public ByteSizeSeriesWriter( Path file ) throws IOException {
+    this( file, DEFAULT_BLOCK_LENGTH );
+  }
+
+  ByteSizeSeriesWriter( Path file, int blockLength ) throws IOException {
+    if ( blockLength < 1 ) {
+      throw new IllegalArgumentException( "blockLength: " + blockLength );
+    }
+    block = new long[blockLength];
+    buffer = ByteBuffer.allocate( BLOCK_HEADER_SIZE + 10 * blockLength );
+    channel = FileChannel.open( file, StandardOpenOption.CREATE,
+      StandardOpenOption.READ, StandardOpenOption.WRITE );
+    try {
+      if ( channel.size() == 0 ) {
+        ByteBuffer header = ByteBuffer.allocate( FILE_HEADER_SIZE );
+        header.putInt( MAGIC ).putInt( VERSION );
+        ( (Buffer) header ).flip();
+        write( header, 0 );
+        position = FILE_HEADER_SIZE;
+      } else {
+        ByteSizeSeriesReader.Index index = ByteSizeSeriesReader.index( channel );
+        if ( index.end < channel.size() ) {
+          channel.truncate( index.end );
+        }
+        position = index.end;
+        size = index.first[index.blocks];
+      }
+    } catch ( IOException | RuntimeException e ) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public void append( long numberOfBytes ) throws IOException {
+    block[count++] = numberOfBytes;
+    size++;
+    if ( count == block.length ) {
+      writeBlock();
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException If the number of bytes does not fit in a long.
+   */
+  public void append( ExactByteSize byteSize ) throws IOException {
+    if ( ! ExactByteSizes.isLong( byteSize ) ) {
+      throw new IllegalArgumentException( "Too large for a series: " + byteSize );
+    }
+    append( ExactByteSizes.longValue( byteSize ) );
+  }
+
+  public void append( long[] numbersOfBytes ) throws IOException {
+    for ( long n : numbersOfBytes ) {
+      append( n );
+    }
+  }
+
+  /**
+   * @return The number of sizes in the file, including those appended but not yet written.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Writes the sizes appended since the last block was written, as a block of its own.
+   */
+  public void flush() throws IOException {
+    if ( count > 0 ) {
+      writeBlock();
+    }
+  }
+
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    ByteBuffer out = buffer;
+    ( (Buffer) out ).clear();
+    ( (Buffer) out ).position( BLOCK_HEADER_SIZE );
+    long min = Long.MAX_VALUE, max = Long.MIN_VALUE, previous = 0;
+    ByteSizeSeriesReader.Sum sum = new ByteSizeSeriesReader.Sum();
+    for ( int i = 0; i < count; i++ ) {
+      long n = block[i];
+      min = Math.min( min, n );
+      max = Math.max( max, n );
+      sum.add( n );
+      ByteSizeCodec.putVarint( out, ByteSizeCodec.zigZag( n - previous ) );
+      previous = n;
+    }
+    out.putInt( COUNT, count )
+      .putInt( PAYLOAD_LENGTH, out.position() - BLOCK_HEADER_SIZE )
+      .putLong( MIN, min )
+      .putLong( MAX, max )
+      .putLong( SUM_HIGH, sum.high )
+      .putLong( SUM_LOW, sum.low );
+    ( (Buffer) out ).flip();
+    int length = out.remaining();
+    write( out, position );
+    position += length;
+    count = 0;
+  }
+
+  private void write( ByteBuffer out, long at ) throws IOException {
+    while ( out.hasRemaining() ) {
+      at += channel.write( out, at );
+    }
+  }
+
+  public String toString() {
+    return "ByteSizeSeriesWriter{size=" + size + "}";
+  }
+
+}
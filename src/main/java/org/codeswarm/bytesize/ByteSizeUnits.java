@@ -9,15 +9,51 @@ public final class ByteSizeUnits {
 
   private ByteSizeUnits() {}
 
+  /**
+   * <p>A unit defined by this class. Each has an index into {@link #RATIOS} and
+   * its size as a double and, if it fits, as a long, so that converting between
+   * these units never touches the {@link BigInteger}.</p>
+   */
+  abstract static class DefaultUnit extends ExactByteSizeImpl implements ByteSizeUnit {
+
+    final int index;
+    final double doubleValue;
+
+    /** The number of bytes, or {@code -1} if it does not fit in a long. */
+    final long longValue;
+
+    private final int hashCode;
+
+    DefaultUnit( int index, BigInteger n ) {
+      super( n );
+      this.index = index;
+      this.doubleValue = n.doubleValue();
+      this.longValue = n.bitLength() < 64 ? n.longValue() : -1;
+      this.hashCode = ExactByteSizes.hashCode( this );
+    }
+
+    public double numberOfBytes( ExactByteSize unit ) {
+      if ( unit instanceof DefaultUnit ) {
+        return RATIOS[index][((DefaultUnit) unit).index];
+      }
+      return doubleValue / ExactByteSizes.doubleValue( unit );
+    }
+
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
   /** A single byte with no unit system. */
   public static final ByteSizeUnit BYTE = new SingleByteUnit();
 
-  static class SIUnit extends ExactByteSizeImpl implements ByteSizeUnit {
+  static class SIUnit extends DefaultUnit {
 
     final int power;
 
     SIUnit( int power ) {
-      super( BigInteger.TEN.pow( power ) );
+      super( power / 3, BigInteger.TEN.pow( power ) );
       this.power = power;
     }
 
@@ -71,12 +107,12 @@ public final class ByteSizeUnits {
     }
   };
 
-  static class IECUnit extends ExactByteSizeImpl implements ByteSizeUnit {
+  static class IECUnit extends DefaultUnit {
 
     final int power;
 
     IECUnit( int power ) {
-      super( BigInteger.valueOf( 2 ).pow( power ) );
+      super( 8 + power / 10, BigInteger.valueOf( 2 ).pow( power ) );
       this.power = power;
     }
 
@@ -130,6 +166,37 @@ public final class ByteSizeUnits {
     }
   };
 
+  /** Every {@link DefaultUnit}, by index. */
+  private static final DefaultUnit[] DEFAULT_UNITS = {
+    (DefaultUnit) BYTE, (DefaultUnit) kB, (DefaultUnit) MB, (DefaultUnit) GB, (DefaultUnit) TB,
+    (DefaultUnit) PB, (DefaultUnit) EB, (DefaultUnit) ZB, (DefaultUnit) YB,
+    (DefaultUnit) KiB, (DefaultUnit) MiB, (DefaultUnit) GiB, (DefaultUnit) TiB,
+    (DefaultUnit) PiB, (DefaultUnit) EiB, (DefaultUnit) ZiB, (DefaultUnit) YiB };
+
+  /**
+   * {@code RATIOS[i][j]} is the number of {@code DEFAULT_UNITS[j]} in one
+   * {@code DEFAULT_UNITS[i]}, computed as the quotient of the two doubles,
+   * exactly as a conversion through the {@link BigInteger}s would be.
+   */
+  static final double[][] RATIOS = new double[DEFAULT_UNITS.length][DEFAULT_UNITS.length];
+  static {
+    for ( DefaultUnit from : DEFAULT_UNITS ) {
+      for ( DefaultUnit to : DEFAULT_UNITS ) {
+        RATIOS[from.index][to.index] = from.doubleValue / to.doubleValue;
+      }
+    }
+  }
+
+  /**
+   * @return The number of {@code to}s in one {@code from}.
+   */
+  static double ratio( ExactByteSize from, ExactByteSize to ) {
+    if ( from instanceof DefaultUnit && to instanceof DefaultUnit ) {
+      return RATIOS[((DefaultUnit) from).index][((DefaultUnit) to).index];
+    }
+    return ExactByteSizes.doubleValue( from ) / ExactByteSizes.doubleValue( to );
+  }
+
   public static Collection<ByteSizeUnit> getAllDefaultUnits() {
     return asList(BYTE, kB,  MB,  GB,  TB,  PB,  EB,  ZB,  YB,
                         KiB, MiB, GiB, TiB, PiB, EiB, ZiB, YiB);
@@ -138,11 +205,17 @@ public final class ByteSizeUnits {
   public static Collection<ByteSizeUnit> getUnitsForSystems(
       Iterable<ByteSizeUnitSystem> unitSystems ) {
 
-    Set<ByteSizeUnit> units = new HashSet<ByteSizeUnit>();
+    // units are equal by value, but two units of the same size may have different names
+    Set<ByteSizeUnit> units = Collections.newSetFromMap( new IdentityHashMap<ByteSizeUnit, Boolean>() );
+    List<ByteSizeUnit> list = new ArrayList<ByteSizeUnit>();
     for ( ByteSizeUnitSystem unitSystem : unitSystems ) {
-      units.addAll( unitSystem.units() );
+      for ( ByteSizeUnit unit : unitSystem.units() ) {
+        if ( units.add( unit ) ) {
+          list.add( unit );
+        }
+      }
     }
-    return units;
+    return list;
   }
 
   public static ByteSizeUnitSystem getDefaultUnitSystem(
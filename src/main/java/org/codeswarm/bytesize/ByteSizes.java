@@ -2,6 +2,13 @@ package org.codeswarm.bytesize;
 
 import java.math.BigInteger;
 
+/**
+ * <p>Factory methods for {@link ByteSize}.</p>
+ *
+ * <p>Exact sizes that fit in a {@code long} are stored as a {@code long};
+ * a {@link BigInteger} is only used when a value (for example, a multiple
+ * of a zettabyte) overflows.</p>
+ */
 public final class ByteSizes {
 
   private ByteSizes() {}
@@ -11,7 +18,7 @@ public final class ByteSizes {
    * @return An immutable object.
    */
   public static ExactByteSize byteSize( BigInteger n ) {
-    return new ExactByteSizeImpl( n );
+    return ExactByteSizes.valueOf( n );
   }
 
   /**
@@ -20,7 +27,7 @@ public final class ByteSizes {
    * @return An immutable object.
    */
   public static ExactByteSize byteSize( long n ) {
-    return new ExactByteSizeImpl( BigInteger.valueOf( n ) );
+    return LongByteSize.valueOf( n );
   }
 
   /**
@@ -28,7 +35,10 @@ public final class ByteSizes {
    * @return An immutable object.
    */
   public static ExactByteSize byteSize( BigInteger n, ExactByteSize unit ) {
-    return new ExactByteSizeImpl( n.multiply( unit.numberOfBytes() ) );
+    if ( n.bitLength() < 64 ) {
+      return ExactByteSizes.multiply( n.longValue(), unit );
+    }
+    return ExactByteSizes.valueOf( n.multiply( unit.numberOfBytes() ) );
   }
 
   /**
@@ -37,8 +47,7 @@ public final class ByteSizes {
    * @return An immutable object.
    */
   public static ExactByteSize byteSize( long n, ExactByteSize unit ) {
-    BigInteger numberOfByes = BigInteger.valueOf( n ).multiply( unit.numberOfBytes() );
-    return new ExactByteSizeImpl( numberOfByes );
+    return ExactByteSizes.multiply( n, unit );
   }
 
   /**
@@ -0,0 +1,232 @@
+package org.codeswarm.bytesize;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+
+/**
+ * <p>Writes a non-negative double with a fixed number of fraction digits, producing
+ * exactly what a {@link DecimalFormat} would, but without its allocation and
+ * general-purpose digit handling.</p>
+ *
+ * <p>The value is scaled by 10<sup>fraction digits</sup> with an exact two-product
+ * (the scaled value is held as the unevaluated sum of two doubles), so ties are
+ * decided on the exact binary value of the double, as the format decides them.
+ * The rounded value is a {@code long} from which the digits are written directly,
+ * and which also decides between the singular and plural unit words.</p>
+ *
+ * <p>Only plain decimal patterns are handled: no affixes, exponent or multiplier,
+ * at most 9 fraction digits and at most 18 minimum integer digits. {@link #of}
+ * returns {@code null} for any other format, and {@link #render} returns {@code -1}
+ * for values it does not handle (negative, non-finite, or at least 2<sup>52</sup>
+ * once scaled), so that the caller can use the format instead.</p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+final class DecimalRenderer {
+
+  static final long[] POWERS_OF_TEN = new long[19];
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for ( int i = 1; i < POWERS_OF_TEN.length; i++ ) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  /** Veltkamp's splitter for a 53-bit significand: 2<sup>27</sup> + 1. */
+  private static final double SPLITTER = 134217729;
+
+  private static final double LIMIT = 0x1p52;
+
+  private final char zeroDigit;
+  private final char decimalSeparator;
+  private final char groupingSeparator;
+  private final int groupingSize;
+  private final int minimumIntegerDigits;
+  private final int minimumFractionDigits;
+  private final int maximumFractionDigits;
+  private final boolean decimalSeparatorAlwaysShown;
+  private final RoundingMode roundingMode;
+  private final long scale;
+
+  /** 10<sup>-(maximum fraction digits + 1)</sup>; the format writes anything smaller as zero. */
+  private final double underflow;
+
+  private DecimalRenderer( DecimalFormat format, DecimalFormatSymbols symbols ) {
+    zeroDigit = symbols.getZeroDigit();
+    decimalSeparator = symbols.getDecimalSeparator();
+    groupingSeparator = symbols.getGroupingSeparator();
+    groupingSize = format.isGroupingUsed() ? format.getGroupingSize() : 0;
+    minimumIntegerDigits = format.getMinimumIntegerDigits();
+    maximumFractionDigits = format.getMaximumFractionDigits();
+    minimumFractionDigits = Math.min( format.getMinimumFractionDigits(), maximumFractionDigits );
+    decimalSeparatorAlwaysShown = format.isDecimalSeparatorAlwaysShown();
+    roundingMode = format.getRoundingMode();
+    scale = POWERS_OF_TEN[maximumFractionDigits];
+    underflow = Double.parseDouble( "1e-" + ( maximumFractionDigits + 1 ) );
+  }
+
+  /**
+   * @return A renderer that writes numbers as {@code numberFormat} does, or
+   * {@code null} if it is not a plain decimal format.
+   */
+  static DecimalRenderer of( NumberFormat numberFormat ) {
+    if ( numberFormat == null || numberFormat.getClass() != DecimalFormat.class ) {
+      return null;
+    }
+    DecimalFormat format = (DecimalFormat) numberFormat;
+    if ( format.getMultiplier() != 1
+        || format.getMaximumFractionDigits() > 9
+        || format.getMaximumIntegerDigits() < 19
+        || format.getMinimumIntegerDigits() > 18
+        || format.getRoundingMode() == RoundingMode.UNNECESSARY
+        || ! format.getPositivePrefix().isEmpty()
+        || ! format.getPositiveSuffix().isEmpty()
+        || format.toPattern().indexOf( 'E' ) >= 0 ) {
+      return null;
+    }
+    return new DecimalRenderer( format, format.getDecimalFormatSymbols() );
+  }
+
+  /**
+   * Appends {@code number} to {@code out}, if it is in the range this handles.
+   *
+   * @return The number rounded to the format's maximum fraction digits and
+   * multiplied by 10<sup>maximum fraction digits</sup>, or {@code -1} if nothing
+   * was appended.
+   */
+  long render( double number, StringBuilder out ) {
+    if ( ! ( number >= 0 ) ) {
+      // negative or NaN; also -0.0, which the format writes with a minus sign
+      return -1;
+    }
+    if ( number == 0 && 1 / number < 0 ) {
+      return -1;
+    }
+    long scaled = round( number );
+    if ( scaled < 0 ) {
+      return -1;
+    }
+    long integerPart = scaled / scale;
+    long fraction = scaled % scale;
+
+    // drop trailing zeros down to the minimum number of fraction digits
+    int fractionDigits = maximumFractionDigits;
+    while ( fractionDigits > minimumFractionDigits && fraction % 10 == 0 ) {
+      fraction /= 10;
+      fractionDigits--;
+    }
+    boolean fractionPresent = fractionDigits > 0;
+
+    int integerDigits = Math.max( minimumIntegerDigits, integerPart == 0 ? 0 : digitCount( integerPart ) );
+    int start = out.length();
+    for ( int i = integerDigits; i > 0; i-- ) {
+      out.append( (char) ( zeroDigit + digit( integerPart, i - 1 ) ) );
+      if ( groupingSize > 0 && i > 1 && ( i - 1 ) % groupingSize == 0 ) {
+        out.append( groupingSeparator );
+      }
+    }
+    if ( ! fractionPresent && out.length() == start ) {
+      out.append( zeroDigit );
+    }
+    if ( fractionPresent || decimalSeparatorAlwaysShown ) {
+      out.append( decimalSeparator );
+    }
+    for ( int i = fractionDigits; i > 0; i-- ) {
+      out.append( (char) ( zeroDigit + digit( fraction, i - 1 ) ) );
+    }
+    return scaled;
+  }
+
+  /**
+   * @return Whether a value returned by {@link #render} is displayed as 1.
+   */
+  boolean isOne( long scaled ) {
+    return scaled == scale;
+  }
+
+  /**
+   * @return {@code number * scale} rounded to an integer, or {@code -1} if it is too large.
+   */
+  private long round( double number ) {
+    // the exact product is hi + lo
+    double hi = number * scale;
+    if ( ! ( hi < LIMIT ) ) {
+      return -1;
+    }
+    double lo = twoProductError( number, scale, hi );
+
+    double floor = Math.floor( hi );
+    double remainder = hi - floor;
+    long integer = (long) floor;
+    int comparedToHalf;
+    if ( remainder == 0 && lo < 0 ) {
+      // just below an integer
+      integer--;
+      comparedToHalf = 1;
+    } else {
+      // the remainder is a multiple of ulp(hi), which is larger than |lo|,
+      // so lo only matters when the remainder is zero or exactly a half
+      comparedToHalf = remainder != 0.5 ? Double.compare( remainder, 0.5 ) : Double.compare( lo, 0 );
+    }
+
+    // The format rounds the shortest decimal that converts back to the number, which
+    // has no digits past the scale when the nearest multiple of 1/scale converts back;
+    // it is the only such multiple, because the number's ulp is less than 1/scale.
+    long nearest = comparedToHalf >= 0 ? integer + 1 : integer;
+    if ( nearest / (double) scale == number ) {
+      return nearest;
+    }
+    boolean up;
+    switch ( roundingMode ) {
+      case HALF_EVEN:
+        up = comparedToHalf > 0 || ( comparedToHalf == 0 && ( integer & 1 ) != 0 );
+        break;
+      case HALF_UP:
+        up = comparedToHalf >= 0;
+        break;
+      case HALF_DOWN:
+        up = comparedToHalf > 0;
+        break;
+      case UP:
+      case CEILING:
+        up = number >= underflow;
+        break;
+      default:
+        up = false;
+    }
+    return up ? integer + 1 : integer;
+  }
+
+  /**
+   * Dekker's algorithm: the exact value of {@code a * b - product}, where
+   * {@code product} is the rounded product of {@code a} and {@code b}.
+   */
+  private static double twoProductError( double a, double b, double product ) {
+    double c = SPLITTER * a;
+    double aHigh = c - ( c - a );
+    double aLow = a - aHigh;
+    c = SPLITTER * b;
+    double bHigh = c - ( c - b );
+    double bLow = b - bHigh;
+    return ( ( aHigh * bHigh - product ) + aHigh * bLow + aLow * bHigh ) + aLow * bLow;
+  }
+
+  private static int digitCount( long n ) {
+    int count = 1;
+    while ( n >= 10 ) {
+      n /= 10;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * @return The digit of {@code n} in the 10<sup>position</sup> place.
+   */
+  private static int digit( long n, int position ) {
+    return (int) ( n / POWERS_OF_TEN[position] % 10 );
+  }
+
+}
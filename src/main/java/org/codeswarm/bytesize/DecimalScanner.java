@@ -0,0 +1,145 @@
+package org.codeswarm.bytesize;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+
+/**
+ * <p>Parses the plain decimal numbers that a {@link DecimalFormat} would accept,
+ * such as {@code "1,234.5"}, by reading the digits straight into a {@code long},
+ * without the cloning and {@link BigDecimal} arithmetic of
+ * {@link ByteSizeFormats#parse(CharSequence, int, int, NumberFormat, UnitVocabulary,
+ * java.text.ParsePosition)}.</p>
+ *
+ * <p>Only an optional minus sign, digits, grouping separators between digits of the
+ * integer part, and one decimal separator are handled. For anything else (exponents,
+ * other digit characters, more than 18 significant digits, or text the format would
+ * reject) {@link #parse} returns {@code null} and the caller falls back to the
+ * {@link DecimalFormat}, so the results and errors are always the same as the
+ * format's.</p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+final class DecimalScanner {
+
+  /** Powers of ten that a double represents exactly. */
+  private static final double[] POWERS_OF_TEN = new double[23];
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for ( int i = 1; i < POWERS_OF_TEN.length; i++ ) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private static final long MAX_MANTISSA = Long.MAX_VALUE / 10;
+
+  private final char zeroDigit;
+  private final char decimalSeparator;
+  private final char groupingSeparator;
+  private final boolean groupingUsed;
+
+  /** {@code 0} if the format's negative prefix is not a single character. */
+  private final char minusSign;
+
+  private DecimalScanner( DecimalFormat format ) {
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    zeroDigit = symbols.getZeroDigit();
+    decimalSeparator = symbols.getDecimalSeparator();
+    groupingSeparator = symbols.getGroupingSeparator();
+    groupingUsed = format.isGroupingUsed();
+    String negativePrefix = format.getNegativePrefix();
+    minusSign = negativePrefix.length() == 1 && format.getNegativeSuffix().isEmpty()
+      ? negativePrefix.charAt( 0 ) : 0;
+  }
+
+  /**
+   * @return A scanner that parses as {@code numberFormat} does, or {@code null}
+   * if it is not a plain {@link DecimalFormat}.
+   */
+  static DecimalScanner of( NumberFormat numberFormat ) {
+    if ( numberFormat == null || numberFormat.getClass() != DecimalFormat.class ) {
+      return null;
+    }
+    DecimalFormat format = (DecimalFormat) numberFormat;
+    if ( format.getMultiplier() != 1
+        || format.isParseIntegerOnly()
+        || ! format.getPositivePrefix().isEmpty()
+        || ! format.getPositiveSuffix().isEmpty() ) {
+      return null;
+    }
+    DecimalScanner scanner = new DecimalScanner( format );
+    if ( scanner.decimalSeparator == scanner.groupingSeparator
+        || Character.digit( scanner.decimalSeparator, 10 ) >= 0
+        || Character.digit( scanner.groupingSeparator, 10 ) >= 0 ) {
+      return null;
+    }
+    return scanner;
+  }
+
+  /**
+   * @param start The index of the first character of the number, which must not be whitespace.
+   * @param end The index just after the number.
+   * @return {@code s[start, end)} as a quantity of {@code unit}s, exact if it is a
+   * whole number; or {@code null} if the number has to be parsed by the format.
+   */
+  ByteSize parse( CharSequence s, int start, int end, ExactByteSize unit ) {
+    int i = start;
+    boolean negative = minusSign != 0 && i < end && s.charAt( i ) == minusSign;
+    if ( negative ) {
+      i++;
+    }
+    long mantissa = 0;
+    int scale = 0, digits = 0;
+    boolean sawDecimal = false;
+    for ( ; i < end; i++ ) {
+      char c = s.charAt( i );
+      int digit = c - zeroDigit;
+      if ( digit >= 0 && digit <= 9 ) {
+        if ( mantissa >= MAX_MANTISSA ) {
+          return null;
+        }
+        mantissa = mantissa * 10 + digit;
+        digits++;
+        if ( sawDecimal ) {
+          scale++;
+        }
+      } else if ( c == decimalSeparator && ! sawDecimal ) {
+        sawDecimal = true;
+      } else if ( c == groupingSeparator && groupingUsed && ! sawDecimal
+          && digits > 0 && i + 1 < end && isDigit( s.charAt( i + 1 ) ) ) {
+        // a separator between two digits of the integer part; others are left to the format
+      } else {
+        return null;
+      }
+    }
+    if ( digits == 0 ) {
+      return null;
+    }
+
+    // a whole number, such as "2" or "2.0", is exact
+    while ( scale > 0 && mantissa % 10 == 0 ) {
+      mantissa /= 10;
+      scale--;
+    }
+    if ( negative ) {
+      mantissa = -mantissa;
+    }
+    if ( scale == 0 ) {
+      return ByteSizes.byteSize( mantissa, unit );
+    }
+
+    // the quotient of two exactly represented doubles is correctly rounded,
+    // as BigDecimal.doubleValue() is
+    if ( scale < POWERS_OF_TEN.length && Math.abs( mantissa ) < 1L << 53 ) {
+      return ByteSizes.byteSize( mantissa / POWERS_OF_TEN[scale], unit );
+    }
+    return ByteSizes.byteSize( BigDecimal.valueOf( mantissa, scale ).doubleValue(), unit );
+  }
+
+  private boolean isDigit( char c ) {
+    int digit = c - zeroDigit;
+    return digit >= 0 && digit <= 9;
+  }
+
+}
@@ -0,0 +1,414 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+
+/**
+ * <p>The total size of a directory tree, with its largest files and
+ * subdirectories, like {@code du}.</p>
+ *
+ * <p>{@link #scan} lists each directory in its own fork/join task, so
+ * subdirectories are read in parallel and idle threads steal the work of
+ * busy ones. Sizes are summed in {@code long}s, and each thread keeps its
+ * own counts and largest entries, which are merged once at the end; no
+ * {@link ByteSize} is created per file.</p>
+ *
+ * <p>The size of a file is the length reported by
+ * {@link BasicFileAttributes#size()}, not the space allocated for it.
+ * Symbolic links are not followed (a link counts as a file of its own size),
+ * and a file with several hard links is counted once per link. Entries that
+ * cannot be read are skipped and counted by {@link #failureCount()}.</p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+public final class DiskUsage {
+
+  private final Path root;
+  private final long totalBytes;
+  private final long fileCount;
+  private final long directoryCount;
+  private final long failureCount;
+  private final List<Entry> largestFiles;
+  private final List<Entry> largestDirectories;
+
+  private DiskUsage( Path root, long totalBytes, long fileCount, long directoryCount,
+                     long failureCount, List<Entry> largestFiles, List<Entry> largestDirectories ) {
+
+    this.root = root;
+    this.totalBytes = totalBytes;
+    this.fileCount = fileCount;
+    this.directoryCount = directoryCount;
+    this.failureCount = failureCount;
+    this.largestFiles = largestFiles;
+    this.largestDirectories = largestDirectories;
+  }
+
+  /**
+   * Scans {@code root} in the {@linkplain ForkJoinPool#commonPool() common pool}.
+   *
+   * @see #scan(Path, int, ForkJoinPool)
+   */
+  public static DiskUsage scan( Path root, int top ) throws IOException {
+    return scan( root, top, ForkJoinPool.commonPool() );
+  }
+
+  /**
+   * @param root A directory, or a single file.
+   * @param top The number of largest files, and of largest subdirectories, to keep.
+   * @param pool Where the directories are listed. Reading directories mostly waits
+   *             on the file system, so a pool with more threads than processors
+   *             can help on network or spinning storage.
+   * @throws IOException If the attributes of {@code root} itself cannot be read.
+   */
+  public static DiskUsage scan( Path root, int top, ForkJoinPool pool ) throws IOException {
+    if ( top < 0 ) {
+      throw new IllegalArgumentException( "top: " + top );
+    }
+    BasicFileAttributes attributes = Files.readAttributes( root, BasicFileAttributes.class );
+    if ( ! attributes.isDirectory() ) {
+      Largest file = new Largest( top );
+      file.offer( attributes.size(), root );
+      return new DiskUsage( root, attributes.size(), 1, 0, 0,
+        file.toList(), Collections.<Entry>emptyList() );
+    }
+
+    Scan scan = new Scan( top );
+    DirectoryTask task = new DirectoryTask( scan, root, true );
+    pool.invoke( task );
+
+    Tally total = new Tally( top );
+    for ( Tally tally : scan.tallies.values() ) {
+      total.add( tally );
+    }
+    return new DiskUsage( root, task.bytes, total.files, total.directories, total.failures,
+      total.largestFiles.toList(), total.largestDirectories.toList() );
+  }
+
+  public Path root() {
+    return root;
+  }
+
+  /**
+   * @return The sum of the sizes of all files under the root.
+   */
+  public ExactByteSize total() {
+    return byteSize( totalBytes );
+  }
+
+  public long fileCount() {
+    return fileCount;
+  }
+
+  /**
+   * @return The number of directories, including the root.
+   */
+  public long directoryCount() {
+    return directoryCount;
+  }
+
+  /**
+   * @return The number of directories and files that could not be read.
+   */
+  public long failureCount() {
+    return failureCount;
+  }
+
+  /**
+   * @return The largest files, largest first.
+   */
+  public List<Entry> largestFiles() {
+    return largestFiles;
+  }
+
+  /**
+   * @return The subdirectories with the largest totals, largest first. The root
+   * is not included, and a directory is included along with its ancestors.
+   */
+  public List<Entry> largestDirectories() {
+    return largestDirectories;
+  }
+
+  /**
+   * <p>Example:</p>
+   *
+   * <pre>
+   * /var/log: 1.2 GB in 5,120 files and 40 directories
+   * largest directories:
+   *   800 MB  /var/log/journal
+   * largest files:
+   *   120 MB  /var/log/syslog.1</pre>
+   *
+   * <p>The sizes are formatted in the unit that {@code format} chooses for each.</p>
+   */
+  public String summary( ByteSizeFormat format, WordLength wordLength ) {
+    StringBuilder out = new StringBuilder();
+    out.append( root ).append( ": " );
+    format.formatTo( total(), wordLength, out );
+    out.append( " in " ).append( fileCount ).append( fileCount == 1 ? " file" : " files" )
+      .append( " and " ).append( directoryCount ).append( directoryCount == 1 ? " directory" : " directories" )
+      .append( '\n' );
+    if ( failureCount != 0 ) {
+      out.append( "unreadable: " ).append( failureCount ).append( '\n' );
+    }
+    appendEntries( "largest directories:", largestDirectories, format, wordLength, out );
+    appendEntries( "largest files:", largestFiles, format, wordLength, out );
+    return out.toString();
+  }
+
+  private static void appendEntries( String heading, List<Entry> entries,
+                                     ByteSizeFormat format, WordLength wordLength, StringBuilder out ) {
+    if ( entries.isEmpty() ) {
+      return;
+    }
+    out.append( heading ).append( '\n' );
+    for ( Entry entry : entries ) {
+      out.append( "  " );
+      format.formatTo( entry.size(), wordLength, out );
+      out.append( "  " ).append( entry.path ).append( '\n' );
+    }
+  }
+
+  public String toString() {
+    return "DiskUsage{root=" + root + ", total=" + totalBytes + " bytes, files=" + fileCount
+      + ", directories=" + directoryCount + "}";
+  }
+
+  /**
+   * A file or directory and its total size.
+   */
+  public static final class Entry {
+
+    private final Path path;
+    private final long bytes;
+
+    Entry( Path path, long bytes ) {
+      this.path = path;
+      this.bytes = bytes;
+    }
+
+    public Path path() {
+      return path;
+    }
+
+    public ExactByteSize size() {
+      return byteSize( bytes );
+    }
+
+    public boolean equals( Object o ) {
+      if ( this == o ) return true;
+      if ( ! ( o instanceof Entry ) ) return false;
+      Entry that = (Entry) o;
+      return bytes == that.bytes && path.equals( that.path );
+    }
+
+    public int hashCode() {
+      return 31 * path.hashCode() + (int) ( bytes ^ ( bytes >>> 32 ) );
+    }
+
+    public String toString() {
+      return path + ": " + bytes + " bytes";
+    }
+
+  }
+
+  /**
+   * The state shared by the tasks of one scan: a tally per thread. They are
+   * held here rather than in a {@link ThreadLocal}, so that they are released
+   * with the scan instead of staying with the pool's threads.
+   */
+  private static final class Scan {
+
+    final int top;
+    final ConcurrentHashMap<Thread, Tally> tallies = new ConcurrentHashMap<Thread, Tally>();
+
+    Scan( int top ) {
+      this.top = top;
+    }
+
+    Tally tally() {
+      Thread thread = Thread.currentThread();
+      Tally tally = tallies.get( thread );
+      if ( tally == null ) {
+        tally = new Tally( top );
+        tallies.put( thread, tally );
+      }
+      return tally;
+    }
+
+  }
+
+  /**
+   * Counts for the directories listed by one thread; only that thread writes to it.
+   */
+  private static final class Tally {
+
+    long files, directories, failures;
+    final Largest largestFiles, largestDirectories;
+
+    Tally( int top ) {
+      largestFiles = new Largest( top );
+      largestDirectories = new Largest( top );
+    }
+
+    void add( Tally that ) {
+      files += that.files;
+      directories += that.directories;
+      failures += that.failures;
+      largestFiles.addAll( that.largestFiles );
+      largestDirectories.addAll( that.largestDirectories );
+    }
+
+  }
+
+  private static final class DirectoryTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    final Scan scan;
+    final Path directory;
+    final boolean root;
+
+    /** The total size of the files under the directory, once this has run. */
+    long bytes;
+
+    DirectoryTask( Scan scan, Path directory, boolean root ) {
+      this.scan = scan;
+      this.directory = directory;
+      this.root = root;
+    }
+
+    protected void compute() {
+      // a task runs start to finish on one thread, even while it waits for its subtasks
+      Tally tally = scan.tally();
+      List<DirectoryTask> subdirectories = null;
+      try ( DirectoryStream<Path> entries = Files.newDirectoryStream( directory ) ) {
+        for ( Path entry : entries ) {
+          BasicFileAttributes attributes;
+          try {
+            attributes = Files.readAttributes( entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+          } catch ( IOException e ) {
+            tally.failures++;
+            continue;
+          }
+          if ( attributes.isDirectory() ) {
+            if ( subdirectories == null ) {
+              subdirectories = new ArrayList<DirectoryTask>();
+            }
+            subdirectories.add( new DirectoryTask( scan, entry, false ) );
+          } else {
+            long size = attributes.size();
+            bytes += size;
+            tally.files++;
+            tally.largestFiles.offer( size, entry );
+          }
+        }
+      } catch ( IOException | DirectoryIteratorException e ) {
+        tally.failures++;
+      }
+      if ( subdirectories != null ) {
+        invokeAll( subdirectories );
+        for ( DirectoryTask subdirectory : subdirectories ) {
+          bytes += subdirectory.bytes;
+        }
+      }
+      tally.directories++;
+      if ( ! root ) {
+        tally.largestDirectories.offer( bytes, directory );
+      }
+    }
+
+  }
+
+  /**
+   * The {@code capacity} largest entries offered, in a min-heap so that an entry
+   * too small to keep is rejected with one comparison.
+   */
+  private static final class Largest {
+
+    private final long[] sizes;
+    private final Path[] paths;
+    private int count;
+
+    Largest( int capacity ) {
+      sizes = new long[capacity];
+      paths = new Path[capacity];
+    }
+
+    void offer( long size, Path path ) {
+      if ( count < sizes.length ) {
+        int i = count++;
+        // sift up
+        while ( i > 0 ) {
+          int parent = ( i - 1 ) >>> 1;
+          if ( sizes[parent] <= size ) {
+            break;
+          }
+          sizes[i] = sizes[parent];
+          paths[i] = paths[parent];
+          i = parent;
+        }
+        sizes[i] = size;
+        paths[i] = path;
+      } else if ( count > 0 && size > sizes[0] ) {
+        // replace the smallest and sift down
+        int i = 0;
+        while ( true ) {
+          int child = 2 * i + 1;
+          if ( child >= count ) {
+            break;
+          }
+          if ( child + 1 < count && sizes[child + 1] < sizes[child] ) {
+            child++;
+          }
+          if ( size <= sizes[child] ) {
+            break;
+          }
+          sizes[i] = sizes[child];
+          paths[i] = paths[child];
+          i = child;
+        }
+        sizes[i] = size;
+        paths[i] = path;
+      }
+    }
+
+    void addAll( Largest that ) {
+      for ( int i = 0; i < that.count; i++ ) {
+        offer( that.sizes[i], that.paths[i] );
+      }
+    }
+
+    /**
+     * @return The entries, largest first.
+     */
+    List<Entry> toList() {
+      Entry[] entries = new Entry[count];
+      for ( int i = 0; i < count; i++ ) {
+        entries[i] = new Entry( paths[i], sizes[i] );
+      }
+      Arrays.sort( entries, ( a, b ) -> {
+        int c = Long.compare( b.bytes, a.bytes );
+        return c != 0 ? c : a.path.compareTo( b.path );
+      } );
+      return Collections.unmodifiableList( Arrays.asList( entries ) );
+    }
+
+  }
+
+}
@@ -14,12 +14,54 @@ class DoubleWithUnit implements ByteSize {
     this.unit = unit;
   }
 
+  /** @return The number of {@link #unit()}s. */
+  double number() {
+    return n;
+  }
+
+  ExactByteSize unit() {
+    return unit;
+  }
+
   public double numberOfBytes( ExactByteSize unit ) {
-    double retval = n;
-    if ( ! this.unit.equals( unit ) ) {
-      retval *= this.unit.numberOfBytes().doubleValue() / unit.numberOfBytes().doubleValue();
+    if ( this.unit == unit ) {
+      return n;
+    }
+    return n * ByteSizeUnits.ratio( this.unit, unit );
+  }
+
+  /**
+   * @return The unit in which {@code size} is approximated: its own unit
+   * if it is a {@link DoubleWithUnit}, otherwise a byte.
+   */
+  private static ExactByteSize unitOf( ByteSize size ) {
+    return size instanceof DoubleWithUnit ? ((DoubleWithUnit) size).unit : ByteSizeUnits.BYTE;
+  }
+
+  static ByteSize plus( ByteSize a, ByteSize b ) {
+    if ( a instanceof ExactByteSize && b instanceof ExactByteSize ) {
+      return ExactByteSizes.add( (ExactByteSize) a, (ExactByteSize) b );
+    }
+    ExactByteSize unit = unitOf( a );
+    return new DoubleWithUnit( a.numberOfBytes( unit ) + b.numberOfBytes( unit ), unit );
+  }
+
+  static ByteSize minus( ByteSize a, ByteSize b ) {
+    if ( a instanceof ExactByteSize && b instanceof ExactByteSize ) {
+      return ExactByteSizes.subtract( (ExactByteSize) a, (ExactByteSize) b );
     }
-    return retval;
+    ExactByteSize unit = unitOf( a );
+    return new DoubleWithUnit( a.numberOfBytes( unit ) - b.numberOfBytes( unit ), unit );
+  }
+
+  static ByteSize times( ByteSize a, double factor ) {
+    ExactByteSize unit = unitOf( a );
+    return new DoubleWithUnit( a.numberOfBytes( unit ) * factor, unit );
+  }
+
+  static ByteSize dividedBy( ByteSize a, double divisor ) {
+    ExactByteSize unit = unitOf( a );
+    return new DoubleWithUnit( a.numberOfBytes( unit ) / divisor, unit );
   }
 
   public int compareTo( ByteSize o ) {
@@ -38,7 +80,7 @@ class DoubleWithUnit implements ByteSize {
     if ( this == o ) return true;
     if ( o == null || getClass() != o.getClass() ) return false;
     DoubleWithUnit that = (DoubleWithUnit) o;
-    return n == that.n && unit.equals( that.unit );
+    return n == that.n && ( unit == that.unit || unit.equals( that.unit ) );
   }
 
   public int hashCode() {
@@ -2,8 +2,62 @@ package org.codeswarm.bytesize;
 
 import java.math.BigInteger;
 
+/**
+ * <p>A {@link ByteSize} that is a whole number of bytes.</p>
+ *
+ * <p>Unlike other byte sizes, exact sizes are equal when they have the same
+ * number of bytes, whichever implementation they are (a unit such as
+ * {@link ByteSizeUnits#kB} is equal to {@code byteSize(1000)}), so they can
+ * be used as map keys. Implementations should follow
+ * {@link #equals(Object)} and {@link #hashCode()}.</p>
+ */
 public interface ExactByteSize extends ByteSize {
 
   BigInteger numberOfBytes();
 
+  /*
+   * Arithmetic stays in long arithmetic when the operands and the result fit,
+   * and only uses BigInteger when a result overflows.
+   */
+
+  default ExactByteSize plus( ExactByteSize other ) {
+    return ExactByteSizes.add( this, other );
+  }
+
+  default ExactByteSize minus( ExactByteSize other ) {
+    return ExactByteSizes.subtract( this, other );
+  }
+
+  default ExactByteSize times( long factor ) {
+    return ExactByteSizes.multiply( factor, this );
+  }
+
+  /**
+   * @return The quotient, rounded toward zero.
+   * @throws ArithmeticException If {@code divisor} is zero.
+   */
+  default ExactByteSize dividedBy( long divisor ) {
+    return ExactByteSizes.divide( this, divisor );
+  }
+
+  default ExactByteSize min( ExactByteSize other ) {
+    return ExactByteSizes.compare( this, other ) <= 0 ? this : other;
+  }
+
+  default ExactByteSize max( ExactByteSize other ) {
+    return ExactByteSizes.compare( this, other ) >= 0 ? this : other;
+  }
+
+  /**
+   * @return {@code true} if {@code o} is an {@link ExactByteSize}
+   * with the same number of bytes.
+   */
+  boolean equals( Object o );
+
+  /**
+   * @return If the number of bytes {@code n} fits in a long, the hash code of
+   * {@code Long.valueOf(n)}; otherwise the hash code of {@link #numberOfBytes()}.
+   */
+  int hashCode();
+
 }
@@ -2,6 +2,10 @@ package org.codeswarm.bytesize;
 
 import java.math.BigInteger;
 
+/**
+ * An {@link ExactByteSize} backed by a {@link BigInteger}. {@link ByteSizes}
+ * only uses this form for values outside of the long range; see {@link LongByteSize}.
+ */
 class ExactByteSizeImpl implements ExactByteSize {
 
   final BigInteger n;
@@ -15,12 +19,12 @@ class ExactByteSizeImpl implements ExactByteSize {
   }
 
   public double numberOfBytes( ExactByteSize unit ) {
-    return n.doubleValue() / unit.numberOfBytes().doubleValue();
+    return n.doubleValue() / ExactByteSizes.doubleValue( unit );
   }
 
   public int compareTo( ByteSize o ) {
     if ( o instanceof ExactByteSize ) {
-      return n.compareTo( ((ExactByteSize) o).numberOfBytes() );
+      return ExactByteSizes.compare( this, (ExactByteSize) o );
     } else {
       ByteSizeUnit unit = ByteSizeUnits.BYTE;
       return Double.compare( numberOfBytes( unit ), o.numberOfBytes( unit ) );
@@ -32,14 +36,11 @@ class ExactByteSizeImpl implements ExactByteSize {
   }
 
   public boolean equals( Object o ) {
-    if ( this == o ) return true;
-    if ( o == null || getClass() != o.getClass() ) return false;
-    ExactByteSizeImpl that = (ExactByteSizeImpl) o;
-    return n.equals( that.n );
+    return ExactByteSizes.equals( this, o );
   }
 
   public int hashCode() {
-    return n.hashCode();
+    return ExactByteSizes.hashCode( this );
   }
 
 }
@@ -0,0 +1,156 @@
+package org.codeswarm.bytesize;
+
+import java.math.BigInteger;
+
+/**
+ * <p>Arithmetic on {@link ExactByteSize} that stays in {@code long}
+ * whenever the values allow it.</p>
+ *
+ * <p>Nothing here allocates unless a result is too large for a {@code long}
+ * or an argument is a user-defined {@link ExactByteSize} implementation.</p>
+ */
+final class ExactByteSizes {
+
+  private ExactByteSizes() {}
+
+  /**
+   * @return The immutable object representing {@code n} bytes,
+   * long-backed if {@code n} fits in a long.
+   */
+  static ExactByteSize valueOf( BigInteger n ) {
+    if ( n.bitLength() < 64 ) {
+      return LongByteSize.valueOf( n.longValue() );
+    }
+    return new ExactByteSizeImpl( n );
+  }
+
+  /**
+   * @return Whether the number of bytes in {@code size} fits in a long.
+   */
+  static boolean isLong( ExactByteSize size ) {
+    if ( size instanceof LongByteSize ) {
+      return true;
+    }
+    if ( size instanceof ByteSizeUnits.DefaultUnit ) {
+      return ((ByteSizeUnits.DefaultUnit) size).longValue >= 0;
+    }
+    return size.numberOfBytes().bitLength() < 64;
+  }
+
+  /**
+   * @return The number of bytes in {@code size}, which must satisfy {@link #isLong}.
+   */
+  static long longValue( ExactByteSize size ) {
+    if ( size instanceof LongByteSize ) {
+      return ((LongByteSize) size).n;
+    }
+    if ( size instanceof ByteSizeUnits.DefaultUnit ) {
+      return ((ByteSizeUnits.DefaultUnit) size).longValue;
+    }
+    return size.numberOfBytes().longValue();
+  }
+
+  static double doubleValue( ExactByteSize size ) {
+    if ( size instanceof LongByteSize ) {
+      return ((LongByteSize) size).n;
+    }
+    if ( size instanceof ByteSizeUnits.DefaultUnit ) {
+      return ((ByteSizeUnits.DefaultUnit) size).doubleValue;
+    }
+    return size.numberOfBytes().doubleValue();
+  }
+
+  static int compare( ExactByteSize a, ExactByteSize b ) {
+    boolean aIsLong = isLong( a ), bIsLong = isLong( b );
+    if ( aIsLong && bIsLong ) {
+      return Long.compare( longValue( a ), longValue( b ) );
+    }
+    // a value outside of the long range is larger in magnitude than any long
+    if ( aIsLong ) {
+      return -b.numberOfBytes().signum();
+    }
+    if ( bIsLong ) {
+      return a.numberOfBytes().signum();
+    }
+    return a.numberOfBytes().compareTo( b.numberOfBytes() );
+  }
+
+  /**
+   * The equality that every {@link ExactByteSize} implements.
+   */
+  static boolean equals( ExactByteSize a, Object b ) {
+    return a == b || ( b instanceof ExactByteSize && compare( a, (ExactByteSize) b ) == 0 );
+  }
+
+  /**
+   * The hash code that every {@link ExactByteSize} implements.
+   */
+  static int hashCode( ExactByteSize size ) {
+    if ( isLong( size ) ) {
+      long n = longValue( size );
+      return (int) ( n ^ ( n >>> 32 ) );
+    }
+    return size.numberOfBytes().hashCode();
+  }
+
+  /**
+   * @return {@code n * unit}, promoted to the BigInteger form only
+   * if the product overflows a long.
+   */
+  static ExactByteSize multiply( long n, ExactByteSize unit ) {
+    if ( isLong( unit ) ) {
+      long u = longValue( unit );
+      long product = n * u;
+      if ( ! multiplicationOverflows( n, u, product ) ) {
+        return LongByteSize.valueOf( product );
+      }
+    }
+    return valueOf( BigInteger.valueOf( n ).multiply( unit.numberOfBytes() ) );
+  }
+
+  static ExactByteSize add( ExactByteSize a, ExactByteSize b ) {
+    if ( isLong( a ) && isLong( b ) ) {
+      long x = longValue( a ), y = longValue( b ), sum = x + y;
+      if ( ( ( x ^ sum ) & ( y ^ sum ) ) >= 0 ) {
+        return LongByteSize.valueOf( sum );
+      }
+    }
+    return valueOf( a.numberOfBytes().add( b.numberOfBytes() ) );
+  }
+
+  static ExactByteSize subtract( ExactByteSize a, ExactByteSize b ) {
+    if ( isLong( a ) && isLong( b ) ) {
+      long x = longValue( a ), y = longValue( b ), difference = x - y;
+      if ( ( ( x ^ y ) & ( x ^ difference ) ) >= 0 ) {
+        return LongByteSize.valueOf( difference );
+      }
+    }
+    return valueOf( a.numberOfBytes().subtract( b.numberOfBytes() ) );
+  }
+
+  static ExactByteSize divide( ExactByteSize a, long divisor ) {
+    if ( divisor == 0 ) {
+      throw new ArithmeticException( "/ by zero" );
+    }
+    if ( isLong( a ) ) {
+      long x = longValue( a );
+      if ( ! ( x == Long.MIN_VALUE && divisor == -1 ) ) {
+        return LongByteSize.valueOf( x / divisor );
+      }
+    }
+    return valueOf( a.numberOfBytes().divide( BigInteger.valueOf( divisor ) ) );
+  }
+
+  /**
+   * The overflow test from {@link Math#multiplyExact(long, long)},
+   * without the exception.
+   */
+  static boolean multiplicationOverflows( long x, long y, long product ) {
+    long ax = Math.abs( x ), ay = Math.abs( y );
+    if ( ( ( ax | ay ) >>> 31 ) == 0 ) {
+      return false;
+    }
+    return ( y != 0 && product / y != x ) || ( x == Long.MIN_VALUE && y == -1 );
+  }
+
+}
@@ -0,0 +1,76 @@
+package org.codeswarm.bytesize;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.util.Locale;
+
+/**
+ * <p>Commits a Flight Recorder event for each slow or failed parse.</p>
+ *
+ * <p>This is the only class that refers to {@code jdk.jfr}, which is not part
+ * of the Java 8 API that the rest of the library is compiled against. It is
+ * compiled on its own, and only loaded, by name, by
+ * {@link ByteSizeInstrumentation#flightRecorderListener}, after checking that
+ * the API is present.</p>
+ */
+final class FlightRecorderListener implements ByteSizeFormatListener {
+
+  private final long slowParseNanos;
+
+  FlightRecorderListener( long slowParseNanos ) {
+    this.slowParseNanos = slowParseNanos;
+  }
+
+  public void parsed( Locale locale, long nanos ) {
+    if ( nanos >= slowParseNanos ) {
+      commit( locale, null, -1, nanos );
+    }
+  }
+
+  public void parseFailed( Locale locale, String text, int errorOffset, long nanos ) {
+    commit( locale, text, errorOffset, nanos );
+  }
+
+  private static void commit( Locale locale, String text, int errorOffset, long nanos ) {
+    ParseEvent event = new ParseEvent();
+    if ( event.isEnabled() ) {
+      event.locale = locale.toLanguageTag();
+      event.failed = text != null;
+      event.text = text;
+      event.errorOffset = errorOffset;
+      event.parseTime = nanos;
+      event.commit();
+    }
+  }
+
+  @Name( "org.codeswarm.bytesize.Parse" )
+  @Label( "Byte Size Parse" )
+  @Description( "A byte size parse that failed or was slow" )
+  @Category( "Byte Size" )
+  static final class ParseEvent extends Event {
+
+    @Label( "Locale" )
+    String locale;
+
+    @Label( "Failed" )
+    boolean failed;
+
+    @Label( "Text" )
+    @Description( "The text that could not be parsed" )
+    String text;
+
+    @Label( "Error Offset" )
+    int errorOffset;
+
+    @Label( "Parse Time" )
+    @Timespan( Timespan.NANOSECONDS )
+    long parseTime;
+
+  }
+
+}
@@ -0,0 +1,106 @@
+package org.codeswarm.bytesize;
+
+import java.util.Arrays;
+
+/**
+ * <p>A column of formatted byte sizes, stored as one block of text
+ * and the offset at which each value ends.</p>
+ *
+ * <p>Filled by {@link ByteSizeColumns}. An instance can be passed back in
+ * to be refilled, which reuses its buffers. It is not thread-safe.</p>
+ */
+public final class FormattedByteSizes {
+
+  final StringBuilder text;
+  int[] ends;
+  int size;
+
+  public FormattedByteSizes() {
+    this( 16 );
+  }
+
+  /**
+   * @param capacity The number of values to allocate room for.
+   */
+  public FormattedByteSizes( int capacity ) {
+    text = new StringBuilder( capacity * 12 );
+    ends = new int[Math.max( capacity, 1 )];
+  }
+
+  /**
+   * @return The number of values.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return All values, concatenated with no separators.
+   * Use {@link #start(int)} and {@link #end(int)} to find each one.
+   */
+  public CharSequence text() {
+    return text;
+  }
+
+  public int start( int index ) {
+    checkIndex( index );
+    return index == 0 ? 0 : ends[index - 1];
+  }
+
+  public int end( int index ) {
+    checkIndex( index );
+    return ends[index];
+  }
+
+  /**
+   * @return The value at {@code index} as a new string.
+   */
+  public String get( int index ) {
+    return text.substring( start( index ), end( index ) );
+  }
+
+  /**
+   * Appends the value at {@code index} to {@code out} without creating a string.
+   */
+  public void appendTo( int index, StringBuilder out ) {
+    out.append( text, start( index ), end( index ) );
+  }
+
+  public String[] toArray() {
+    String[] strings = new String[size];
+    for ( int i = 0; i < size; i++ ) {
+      strings[i] = get( i );
+    }
+    return strings;
+  }
+
+  public void clear() {
+    text.setLength( 0 );
+    size = 0;
+  }
+
+  void ensureCapacity( int capacity ) {
+    if ( ends.length < capacity ) {
+      ends = Arrays.copyOf( ends, Math.max( capacity, ends.length * 2 ) );
+    }
+  }
+
+  /**
+   * Marks the end of the value that was just appended to {@link #text}.
+   */
+  void endValue() {
+    ensureCapacity( size + 1 );
+    ends[size++] = text.length();
+  }
+
+  private void checkIndex( int index ) {
+    if ( index < 0 || index >= size ) {
+      throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+    }
+  }
+
+  public String toString() {
+    return Arrays.toString( toArray() );
+  }
+
+}
@@ -0,0 +1,69 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+
+/**
+ * <p>A byte size paired with the format to render it in, formatted only when
+ * {@link #toString()} or {@link #formatTo(StringBuilder)} is called.</p>
+ *
+ * <p>Pass one to a logging framework in place of a formatted string, and the
+ * formatting is skipped when the log level is disabled:</p>
+ *
+ * <pre>log.debug( "read {}", format.lazy( size, WordLength.ABBREVIATION ) );</pre>
+ *
+ * <p>The formatted string is kept after the first call to {@link #toString()}.</p>
+ *
+ * @see ByteSizeFormat#lazy(ByteSize, WordLength)
+ */
+public final class LazyFormattedByteSize {
+
+  private final ByteSizeFormat format;
+  private final ByteSize byteSize;
+  private final ByteSizeUnit unit;
+  private final WordLength wordLength;
+
+  /** Racy but idempotent, like {@link String#hashCode()}. */
+  private String string;
+
+  /**
+   * @param unit {@code null} to choose a unit automatically.
+   */
+  LazyFormattedByteSize( ByteSizeFormat format, ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength ) {
+    this.format = format;
+    this.byteSize = byteSize;
+    this.unit = unit;
+    this.wordLength = wordLength;
+  }
+
+  public ByteSize getByteSize() {
+    return byteSize;
+  }
+
+  /**
+   * Appends the formatted size to {@code out} without creating a string.
+   * This matches the {@code formatTo(StringBuilder)} method that some logging
+   * frameworks look for on message parameters.
+   */
+  public void formatTo( StringBuilder out ) {
+    String s = string;
+    if ( s != null ) {
+      out.append( s );
+    } else if ( unit == null ) {
+      format.formatTo( byteSize, wordLength, out );
+    } else {
+      format.formatTo( byteSize, unit, wordLength, out );
+    }
+  }
+
+  public String toString() {
+    String s = string;
+    if ( s == null ) {
+      s = unit == null
+        ? format.format( byteSize, wordLength )
+        : format.format( byteSize, unit, wordLength );
+      string = s;
+    }
+    return s;
+  }
+
+}
@@ -0,0 +1,97 @@
+package org.codeswarm.bytesize;
+
+import java.math.BigInteger;
+
+/**
+ * <p>An {@link ExactByteSize} whose number of bytes fits in a long.
+ * {@link ByteSizes} returns this form whenever it can; larger values
+ * are represented by {@link ExactByteSizeImpl}.</p>
+ *
+ * <p>Like {@link Long#valueOf(long)}, {@link #valueOf(long)} returns shared
+ * instances for common values: 0 through 1024, and every power of two and
+ * of ten (which includes every long-sized SI and IEC unit).</p>
+ */
+final class LongByteSize implements ExactByteSize {
+
+  private static final LongByteSize[] SMALL = new LongByteSize[1025];
+  private static final LongByteSize[] POWERS_OF_TWO = new LongByteSize[63];
+  private static final LongByteSize[] POWERS_OF_TEN = new LongByteSize[19];
+
+  static {
+    for ( int i = 0; i < SMALL.length; i++ ) {
+      SMALL[i] = new LongByteSize( i );
+    }
+    for ( int i = 0; i < POWERS_OF_TWO.length; i++ ) {
+      long n = 1L << i;
+      POWERS_OF_TWO[i] = n < SMALL.length ? SMALL[(int) n] : new LongByteSize( n );
+    }
+    long n = 1;
+    for ( int i = 0; i < POWERS_OF_TEN.length; i++, n *= 10 ) {
+      POWERS_OF_TEN[i] = n < SMALL.length ? SMALL[(int) n] : new LongByteSize( n );
+    }
+  }
+
+  final long n;
+
+  /** Created on demand by {@link #numberOfBytes()}; racy but idempotent. */
+  private BigInteger bigInteger;
+
+  private LongByteSize( long n ) {
+    this.n = n;
+  }
+
+  static LongByteSize valueOf( long n ) {
+    if ( n >= 0 && n < SMALL.length ) {
+      return SMALL[(int) n];
+    }
+    if ( n > 0 ) {
+      int zeros = Long.numberOfTrailingZeros( n );
+      if ( ( n & ( n - 1 ) ) == 0 ) {
+        return POWERS_OF_TWO[zeros];
+      }
+      // 10^k has exactly k trailing zero bits
+      if ( zeros < POWERS_OF_TEN.length && POWERS_OF_TEN[zeros].n == n ) {
+        return POWERS_OF_TEN[zeros];
+      }
+    }
+    return new LongByteSize( n );
+  }
+
+  public BigInteger numberOfBytes() {
+    BigInteger b = bigInteger;
+    if ( b == null ) {
+      b = BigInteger.valueOf( n );
+      bigInteger = b;
+    }
+    return b;
+  }
+
+  public double numberOfBytes( ExactByteSize unit ) {
+    return n / ExactByteSizes.doubleValue( unit );
+  }
+
+  public int compareTo( ByteSize o ) {
+    if ( o instanceof ExactByteSize ) {
+      return ExactByteSizes.compare( this, (ExactByteSize) o );
+    } else {
+      ByteSizeUnit unit = ByteSizeUnits.BYTE;
+      return Double.compare( numberOfBytes( unit ), o.numberOfBytes( unit ) );
+    }
+  }
+
+  public String toString() {
+    return n + " bytes";
+  }
+
+  public boolean equals( Object o ) {
+    if ( o instanceof LongByteSize ) {
+      return n == ((LongByteSize) o).n;
+    }
+    return ExactByteSizes.equals( this, o );
+  }
+
+  public int hashCode() {
+    return (int) ( n ^ ( n >>> 32 ) );
+  }
+
+}
@@ -0,0 +1,161 @@
+package org.codeswarm.bytesize;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>A unit system's units with their sizes precomputed, for choosing the
+ * largest unit that does not exceed a given size (see
+ * {@link ByteSizeFormats#determineReasonableUnit(ByteSize, ByteSizeUnitSystem)}).</p>
+ *
+ * <p>For long-valued sizes this does not allocate. In a system like IEC,
+ * where each unit is 2<sup>10</sup> times the last, the unit comes straight
+ * from the bit length of the size; otherwise from a scan of a short sorted
+ * array of longs.</p>
+ *
+ * <p>Instances are immutable and safe for concurrent use.</p>
+ */
+final class UnitThresholds {
+
+  private static final UnitThresholds SI = new UnitThresholds( ByteSizeUnits.SI.units() );
+  private static final UnitThresholds IEC = new UnitThresholds( ByteSizeUnits.IEC.units() );
+
+  private final ByteSizeUnit[] units;
+
+  /** {@code true} if the units ascend, so that the tables below can be used. */
+  private final boolean ascending;
+
+  /** {@code true} if unit {@code i} is 2<sup>10i</sup> bytes. */
+  private final boolean binary;
+
+  /** The sizes of {@code units[1..]} that fit in a long. */
+  private final long[] longThresholds;
+
+  /** The sizes of {@code units[1..]}. */
+  private final double[] doubleThresholds;
+
+  UnitThresholds( List<ByteSizeUnit> unitList ) {
+    if ( unitList.isEmpty() ) {
+      throw new IllegalArgumentException("Unit system has no units");
+    }
+    units = unitList.toArray( new ByteSizeUnit[unitList.size()] );
+
+    boolean ascending = true, binary = true;
+    int longUnits = 0;
+    for ( int i = 0; i < units.length; i++ ) {
+      if ( i > 0 && ExactByteSizes.compare( units[i - 1], units[i] ) >= 0 ) {
+        ascending = false;
+      }
+      if ( ! isPowerOfTwo( units[i], 10 * i ) ) {
+        binary = false;
+      }
+      if ( i > 0 && ExactByteSizes.isLong( units[i] ) ) {
+        longUnits++;
+      }
+    }
+    this.ascending = ascending;
+    this.binary = ascending && binary;
+
+    longThresholds = new long[longUnits];
+    doubleThresholds = new double[units.length - 1];
+    for ( int i = 1; i < units.length; i++ ) {
+      if ( i <= longUnits ) {
+        longThresholds[i - 1] = ExactByteSizes.longValue( units[i] );
+      }
+      doubleThresholds[i - 1] = ExactByteSizes.doubleValue( units[i] );
+    }
+  }
+
+  /**
+   * @return The shared table for {@link ByteSizeUnits#SI} or {@link ByteSizeUnits#IEC},
+   * or a new one for any other system.
+   */
+  static UnitThresholds of( ByteSizeUnitSystem unitSystem ) {
+    if ( unitSystem == ByteSizeUnits.SI ) return SI;
+    if ( unitSystem == ByteSizeUnits.IEC ) return IEC;
+    return new UnitThresholds( unitSystem.units() );
+  }
+
+  /**
+   * Selects a unit of {@code unitSystem} for one size. Building a table for a
+   * system other than SI or IEC costs more than one walk over its units, so
+   * such a system is walked instead; callers that select many units from one
+   * system should keep a table from {@link #of}.
+   */
+  static ByteSizeUnit select( ByteSizeUnitSystem unitSystem, ByteSize size ) {
+    if ( unitSystem == ByteSizeUnits.SI ) return SI.select( size );
+    if ( unitSystem == ByteSizeUnits.IEC ) return IEC.select( size );
+    Iterator<ByteSizeUnit> units = unitSystem.units().iterator();
+    if ( ! units.hasNext() ) {
+      throw new IllegalArgumentException("Unit system has no units");
+    }
+    ByteSizeUnit unit = units.next();
+    while ( units.hasNext() ) {
+      ByteSizeUnit next = units.next();
+      if ( next.compareTo( size ) > 0 ) {
+        return unit;
+      }
+      unit = next;
+    }
+    return unit;
+  }
+
+  private static boolean isPowerOfTwo( ExactByteSize size, int exponent ) {
+    if ( exponent > 62 ) {
+      return size.numberOfBytes().bitCount() == 1
+        && size.numberOfBytes().getLowestSetBit() == exponent;
+    }
+    return ExactByteSizes.isLong( size ) && ExactByteSizes.longValue( size ) == 1L << exponent;
+  }
+
+  ByteSizeUnit select( ByteSize size ) {
+    if ( size instanceof ExactByteSize ) {
+      ExactByteSize exact = (ExactByteSize) size;
+      if ( ExactByteSizes.isLong( exact ) ) {
+        return select( ExactByteSizes.longValue( exact ) );
+      }
+      return selectLinear( size );
+    }
+    if ( ! ascending ) {
+      return selectLinear( size );
+    }
+    double bytes = size.numberOfBytes( ByteSizeUnits.BYTE );
+    int i = 0;
+    while ( i < doubleThresholds.length && Double.compare( doubleThresholds[i], bytes ) <= 0 ) {
+      i++;
+    }
+    return units[i];
+  }
+
+  ByteSizeUnit select( long numberOfBytes ) {
+    if ( binary ) {
+      if ( numberOfBytes < 1024 ) {
+        return units[0];
+      }
+      int i = ( 63 - Long.numberOfLeadingZeros( numberOfBytes ) ) / 10;
+      return units[Math.min( i, units.length - 1 )];
+    }
+    if ( ! ascending ) {
+      return selectLinear( ByteSizes.byteSize( numberOfBytes ) );
+    }
+    int i = 0;
+    while ( i < longThresholds.length && longThresholds[i] <= numberOfBytes ) {
+      i++;
+    }
+    return units[i];
+  }
+
+  /**
+   * The first unit larger than {@code size} is one too large; this works
+   * for sizes of any magnitude and for units in any order.
+   */
+  private ByteSizeUnit selectLinear( ByteSize size ) {
+    for ( int i = 1; i < units.length; i++ ) {
+      if ( units[i].compareTo( size ) > 0 ) {
+        return units[i - 1];
+      }
+    }
+    return units[units.length - 1];
+  }
+
+}
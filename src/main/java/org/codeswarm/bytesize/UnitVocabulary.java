@@ -0,0 +1,168 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormats.WordType;
+
+import java.util.*;
+
+/**
+ * <p>The words for a collection of units in one resource bundle, looked up
+ * once and compiled into an immutable suffix trie.</p>
+ *
+ * <p>{@link #match} finds the unit word at the end of a string in a single
+ * backwards pass, without allocating. Where one word is a suffix of another
+ * ("bytes" and "kilobytes"), the longest match wins. Where two units share
+ * a word, the unit that comes first in the collection wins.</p>
+ *
+ * <p>Instances are immutable and safe for concurrent use.</p>
+ */
+final class UnitVocabulary {
+
+  private static final char[] NO_KEYS = new char[0];
+  private static final int[] NO_CHILDREN = new int[0];
+
+  /** Words for each unit, indexed by {@link WordType#ordinal()}. */
+  private final Map<ByteSizeUnit, String[]> words;
+
+  private final ResourceBundle resourceBundle;
+
+  // The trie, one array element per node. Node 0 is the root, and the edges
+  // out of a node are labelled with the characters of the words read backwards.
+  private final char[][] keys;
+  private final int[][] children;
+  private final ByteSizeUnit[] units;
+  private final int[] depths;
+
+  private UnitVocabulary( Map<ByteSizeUnit, String[]> words, ResourceBundle resourceBundle,
+                          char[][] keys, int[][] children, ByteSizeUnit[] units, int[] depths ) {
+    this.words = words;
+    this.resourceBundle = resourceBundle;
+    this.keys = keys;
+    this.children = children;
+    this.units = units;
+    this.depths = depths;
+  }
+
+  static UnitVocabulary compile( Collection<ByteSizeUnit> units, ResourceBundle resourceBundle ) {
+
+    // keyed by identity: two units of the same size may have different words
+    Map<ByteSizeUnit, String[]> words = new IdentityHashMap<ByteSizeUnit, String[]>();
+    Builder builder = new Builder();
+    for ( ByteSizeUnit unit : units ) {
+      String[] unitWords = new String[WordType.values().length];
+      for ( WordType wordType : WordType.values() ) {
+        String word = ByteSizeFormats.unitWord( unit, wordType, resourceBundle );
+        unitWords[wordType.ordinal()] = word;
+        builder.add( word, unit );
+      }
+      if ( ! words.containsKey( unit ) ) {
+        words.put( unit, unitWords );
+      }
+    }
+    return builder.build( words, resourceBundle );
+  }
+
+  /**
+   * @return The word for {@code unit}, which need not be one of the units
+   * this vocabulary was compiled from.
+   */
+  String word( ByteSizeUnit unit, WordType wordType ) {
+    String[] unitWords = words.get( unit );
+    if ( unitWords != null ) {
+      return unitWords[wordType.ordinal()];
+    }
+    return ByteSizeFormats.unitWord( unit, wordType, resourceBundle );
+  }
+
+  /**
+   * @return A match handle for the longest unit word that {@code s[start, end)}
+   * ends with, to be passed to {@link #unit(int)} and {@link #length(int)},
+   * or {@code -1} if it ends with none of them.
+   */
+  int match( CharSequence s, int start, int end ) {
+    int node = 0;
+    int match = units[0] != null ? 0 : -1;
+    for ( int i = end - 1; i >= start; i-- ) {
+      int k = Arrays.binarySearch( keys[node], s.charAt( i ) );
+      if ( k < 0 ) {
+        break;
+      }
+      node = children[node][k];
+      if ( units[node] != null ) {
+        match = node;
+      }
+    }
+    return match;
+  }
+
+  ByteSizeUnit unit( int match ) {
+    return units[match];
+  }
+
+  /**
+   * @return The number of characters in the matched word.
+   */
+  int length( int match ) {
+    return depths[match];
+  }
+
+  private static final class Builder {
+
+    private final List<TreeMap<Character, Integer>> edges = new ArrayList<TreeMap<Character, Integer>>();
+    private final List<ByteSizeUnit> units = new ArrayList<ByteSizeUnit>();
+    private final List<Integer> depths = new ArrayList<Integer>();
+
+    Builder() {
+      newNode( 0 );
+    }
+
+    private int newNode( int depth ) {
+      edges.add( new TreeMap<Character, Integer>() );
+      units.add( null );
+      depths.add( depth );
+      return edges.size() - 1;
+    }
+
+    void add( String word, ByteSizeUnit unit ) {
+      int node = 0;
+      for ( int i = word.length() - 1; i >= 0; i-- ) {
+        Integer child = edges.get( node ).get( word.charAt( i ) );
+        if ( child == null ) {
+          child = newNode( word.length() - i );
+          edges.get( node ).put( word.charAt( i ), child );
+        }
+        node = child;
+      }
+      if ( units.get( node ) == null ) {
+        units.set( node, unit );
+      }
+    }
+
+    UnitVocabulary build( Map<ByteSizeUnit, String[]> words, ResourceBundle resourceBundle ) {
+      int n = edges.size();
+      char[][] keys = new char[n][];
+      int[][] children = new int[n][];
+      int[] depths = new int[n];
+      for ( int node = 0; node < n; node++ ) {
+        TreeMap<Character, Integer> nodeEdges = edges.get( node );
+        if ( nodeEdges.isEmpty() ) {
+          keys[node] = NO_KEYS;
+          children[node] = NO_CHILDREN;
+        } else {
+          keys[node] = new char[nodeEdges.size()];
+          children[node] = new int[nodeEdges.size()];
+          int k = 0;
+          for ( Map.Entry<Character, Integer> edge : nodeEdges.entrySet() ) {
+            keys[node][k] = edge.getKey();
+            children[node][k] = edge.getValue();
+            k++;
+          }
+        }
+        depths[node] = this.depths.get( node );
+      }
+      return new UnitVocabulary( words, resourceBundle, keys, children,
+        units.toArray( new ByteSizeUnit[n] ), depths );
+    }
+
+  }
+
+}
@@ -0,0 +1,152 @@
+package org.codeswarm.bytesize;
+
+import org.testng.annotations.Test;
+
+import java.text.DecimalFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.codeswarm.bytesize.ByteSizeFormat.WordLength.ABBREVIATION;
+import static org.codeswarm.bytesize.ByteSizeFormat.WordLength.FULL;
+import static org.codeswarm.bytesize.ByteSizeUnits.*;
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ByteRateTest {
+
+  @Test
+  public void testConversions() {
+    ByteRate rate = ByteRate.of( byteSize( 60, MB ), 1, TimeUnit.MINUTES );
+    assertEquals( rate.bytesPerSecond(), 1e6 );
+    assertEquals( rate.bitsPerSecond(), 8e6 );
+    assertEquals( rate.bytesPer( TimeUnit.MINUTES ), 60e6 );
+    assertEquals( rate.bitsPer( TimeUnit.MILLISECONDS ), 8e3 );
+    assertEquals( rate.times( 3, TimeUnit.SECONDS ).numberOfBytes( MB ), 3.0 );
+    assertEquals( ByteRate.bitsPerSecond( 8e6 ), rate );
+  }
+
+  @Test
+  public void testFormat() {
+    ByteSizeFormat format = new ByteSizeFormatBuilder()
+      .locale( Locale.ENGLISH )
+      .unitSystem( ByteSizeUnits.IEC )
+      .numberFormat( new DecimalFormat( "#,###.#" ) )
+      .build();
+    ByteRate rate = ByteRate.of( byteSize( 123, MiB ), 10, TimeUnit.SECONDS );
+    assertEquals( format.format( rate, ABBREVIATION ), "12.3 MiB/s" );
+    assertEquals( format.format( rate, FULL ), "12.3 mebibytes per second" );
+  }
+
+  @Test
+  public void testFormatTranslated() {
+    ByteSizeFormat format = new ByteSizeFormatBuilder()
+      .locale( Locale.forLanguageTag( "eo" ) )
+      .unitSystem( ByteSizeUnits.SI )
+      .build();
+    assertEquals( format.format( ByteRate.bytesPerSecond( 2e3 ), FULL ), "2 kilobajtoj je sekundo" );
+  }
+
+  @Test
+  public void testMeterSlides() {
+    FakeClock clock = new FakeClock();
+    ByteRateMeter meter = new ByteRateMeter( 10, TimeUnit.SECONDS, 10, clock );
+
+    // half a second in, 1 kB has been recorded
+    clock.advance( 500 );
+    meter.record( 1000 );
+    assertEquals( meter.rate().bytesPerSecond(), 2000.0 );
+
+    // then every second for 10 seconds; at 10.5 seconds, the window
+    // covers 9.5 seconds and the first kB has dropped out of it
+    for ( int i = 0; i < 10; i++ ) {
+      clock.advance( 1000 );
+      meter.record( 1000 );
+    }
+    assertEquals( meter.rate().bytesPerSecond(), 10000 / 9.5, 1e-9 );
+
+    clock.advance( 2000 );
+    assertEquals( meter.rate().bytesPerSecond(), 8000 / 9.5, 1e-9 );
+
+    clock.advance( 20000 );
+    assertEquals( meter.rate(), ByteRate.ZERO );
+  }
+
+  @Test
+  public void testMeterConcurrent() throws Exception {
+    FakeClock clock = new FakeClock();
+    final ByteRateMeter meter = new ByteRateMeter( 10, TimeUnit.SECONDS, 10, clock );
+    Thread[] threads = new Thread[4];
+    for ( int t = 0; t < threads.length; t++ ) {
+      threads[t] = new Thread( () -> {
+        for ( int i = 0; i < 100000; i++ ) {
+          meter.record( byteSize( 1, KiB ) );
+        }
+      } );
+      threads[t].start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    clock.advance( 1000 );
+    assertEquals( meter.rate().perSecond().numberOfBytes( KiB ), 400000.0 );
+  }
+
+  /**
+   * Slots are reused over and over while threads record into them; no slot is
+   * left half cleared, and the window never holds more than was recorded.
+   */
+  @Test
+  public void testMeterConcurrentWraparound() throws Exception {
+    final AtomicLong nanos = new AtomicLong();
+    final ByteRateMeter meter = new ByteRateMeter( 4, TimeUnit.NANOSECONDS, 4, nanos::get );
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicLong recorded = new AtomicLong();
+    Thread[] threads = new Thread[4];
+    for ( int t = 0; t < threads.length; t++ ) {
+      threads[t] = new Thread( () -> {
+        while ( ! stop.get() ) {
+          meter.record( 1 );
+          recorded.incrementAndGet();
+        }
+      } );
+      threads[t].start();
+    }
+    for ( int i = 0; i < 20000; i++ ) {
+      nanos.incrementAndGet();
+      if ( i % 100 == 0 ) {
+        Thread.yield();
+      }
+    }
+    stop.set( true );
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    assertTrue( meter.rate().bytesPerSecond() <= recorded.get() * 1e9 / 4 );
+
+    nanos.addAndGet( 4 );
+    for ( int i = 0; i < 4; i++ ) {
+      meter.record( 1000 );
+      nanos.incrementAndGet();
+    }
+    assertEquals( meter.rate().bytesPerSecond(), 1000e9, 1e-3 );
+  }
+
+  private static final class FakeClock implements LongSupplier {
+
+    long nanos = 12345;
+
+    void advance( long millis ) {
+      nanos += TimeUnit.MILLISECONDS.toNanos( millis );
+    }
+
+    public long getAsLong() {
+      return nanos;
+    }
+
+  }
+
+}
@@ -0,0 +1,176 @@
+package org.codeswarm.bytesize;
+
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.codeswarm.bytesize.ByteSizeUnits.*;
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ByteSizeCodecTest {
+
+  static final List<ByteSize> SIZES = Arrays.asList(
+    byteSize( 0 ), byteSize( 63 ), byteSize( -64 ), byteSize( 64 ), byteSize( 1500 ),
+    byteSize( Long.MAX_VALUE ), byteSize( Long.MIN_VALUE ),
+    YB, byteSize( BigInteger.valueOf( Long.MIN_VALUE ).subtract( BigInteger.ONE ) ),
+    byteSize( 1.5, MiB ), byteSize( -0.25, YB ), byteSize( 1e30 ) );
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate( 1024 ).order( ByteOrder.LITTLE_ENDIAN );
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream( bytes );
+    for ( ByteSize size : SIZES ) {
+      int before = buffer.position();
+      ByteSizeCodec.write( size, buffer );
+      assertEquals( buffer.position() - before, ByteSizeCodec.sizeOf( size ), size.toString() );
+      ByteSizeCodec.write( size, out );
+    }
+    buffer.flip();
+
+    // both forms produce the same bytes
+    assertEquals( Arrays.copyOf( buffer.array(), buffer.limit() ), bytes.toByteArray() );
+
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    for ( ByteSize size : SIZES ) {
+      assertEquals( ByteSizeCodec.read( buffer ), size );
+      assertEquals( ByteSizeCodec.read( in ), size );
+    }
+    assertFalse( buffer.hasRemaining() );
+  }
+
+  @Test
+  public void testCompact() {
+    assertEquals( ByteSizeCodec.sizeOf( byteSize( 63 ) ), 2 );
+    assertEquals( ByteSizeCodec.sizeOf( byteSize( 1, MB ) ), 4 );
+    assertEquals( ByteSizeCodec.sizeOf( byteSize( Long.MIN_VALUE ) ), 11 );
+    assertEquals( ByteSizeCodec.sizeOf( byteSize( 1.5, MiB ) ), 1 + 8 + 5 );
+  }
+
+  @Test
+  public void testDefaultUnitsAreRestored() {
+    ByteBuffer buffer = ByteBuffer.allocate( 32 );
+    ByteSizeCodec.write( byteSize( 2.5, MB ), buffer );
+    buffer.flip();
+    DoubleWithUnit size = (DoubleWithUnit) ByteSizeCodec.read( buffer );
+    assertSame( size.unit(), MB );
+  }
+
+  @Test
+  public void testNaN() {
+    ByteBuffer buffer = ByteBuffer.allocate( 32 );
+    ByteSizeCodec.write( byteSize( Double.NaN, kB ), buffer );
+    buffer.flip();
+    assertTrue( Double.isNaN( ByteSizeCodec.read( buffer ).numberOfBytes( kB ) ) );
+  }
+
+  @Test
+  public void testLongs() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate( 32 );
+    ByteSizeCodec.writeLong( -123456789, buffer );
+    ByteSizeCodec.write( byteSize( 1, GiB ), buffer );
+    buffer.flip();
+    assertEquals( ByteSizeCodec.read( buffer ), byteSize( -123456789 ) );
+    assertEquals( ByteSizeCodec.readLong( buffer ), 1L << 30 );
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ByteSizeCodec.write( byteSize( 1, YiB ), new DataOutputStream( bytes ) );
+    try {
+      ByteSizeCodec.readLong( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+      fail();
+    } catch ( StreamCorruptedException expected ) {
+    }
+  }
+
+  @Test
+  public void testCorrupt() {
+    try {
+      ByteSizeCodec.read( ByteBuffer.wrap( new byte[]{ 7 } ) );
+      fail();
+    } catch ( IllegalArgumentException expected ) {
+    }
+    byte[] overlong = new byte[12];
+    Arrays.fill( overlong, (byte) 0x80 );
+    overlong[0] = ByteSizeCodec.LONG;
+    try {
+      ByteSizeCodec.read( new DataInputStream( new ByteArrayInputStream( overlong ) ) );
+      fail();
+    } catch ( IOException expected ) {
+    }
+  }
+
+  /**
+   * The tenth byte of a varint only has room for the 64th bit.
+   */
+  @Test
+  public void testVarintOverflow() throws IOException {
+    byte[] max = new byte[11];
+    Arrays.fill( max, (byte) 0xFF );
+    max[0] = ByteSizeCodec.LONG;
+    max[10] = 1;
+    assertEquals( ByteSizeCodec.readLong( ByteBuffer.wrap( max ) ), Long.MIN_VALUE );
+    max[10] = 2;
+    try {
+      ByteSizeCodec.readLong( ByteBuffer.wrap( max ) );
+      fail();
+    } catch ( IllegalArgumentException expected ) {
+    }
+    try {
+      ByteSizeCodec.readLong( new DataInputStream( new ByteArrayInputStream( max ) ) );
+      fail();
+    } catch ( StreamCorruptedException expected ) {
+    }
+  }
+
+  /**
+   * A length longer than the input fails without allocating it.
+   */
+  @Test
+  public void testBigLengthBeyondInput() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate( 16 );
+    buffer.put( ByteSizeCodec.BIG );
+    ByteSizeCodec.putVarint( buffer, Integer.MAX_VALUE / 8 + 1 );
+    buffer.put( (byte) 1 );
+    buffer.flip();
+    byte[] bytes = Arrays.copyOf( buffer.array(), buffer.limit() );
+    try {
+      ByteSizeCodec.read( buffer );
+      fail();
+    } catch ( IllegalArgumentException expected ) {
+    }
+    try {
+      ByteSizeCodec.read( new DataInputStream( new ByteArrayInputStream( bytes ) ) );
+      fail();
+    } catch ( EOFException expected ) {
+    }
+
+    bytes[1] = (byte) 0x81;
+    bytes[2] = (byte) 0x80;
+    bytes[3] = (byte) 0x80;
+    bytes[4] = (byte) 0x80;
+    bytes[5] = (byte) 0x01;
+    try {
+      ByteSizeCodec.read( new DataInputStream( new ByteArrayInputStream( bytes ) ) );
+      fail();
+    } catch ( StreamCorruptedException expected ) {
+    }
+
+    // a long input is read in chunks
+    BigInteger big = BigInteger.ONE.shiftLeft( 100000 );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteSizeCodec.write( byteSize( big ), new DataOutputStream( out ) );
+    assertEquals( ByteSizeCodec.read( new DataInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ),
+      byteSize( big ) );
+  }
+
+}
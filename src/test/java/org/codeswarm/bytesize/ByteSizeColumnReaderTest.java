@@ -0,0 +1,92 @@
+package org.codeswarm.bytesize;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class ByteSizeColumnReaderTest {
+
+  ByteSizeFormat format = new ByteSizeFormatBuilder().locale( Locale.US ).build();
+
+  static final String CSV =
+    "name,size,owner\r\n" +
+    "a,1.5 GB,root\r\n" +
+    "\r\n" +
+    "\"b, c\",\"300 KiB\",nobody\n" +
+    "d,  12 ,\n" +
+    "e,7 bytes";
+
+  static List<Long> readAll( ByteSizeColumnReader reader ) throws IOException, ParseException {
+    final List<Long> sizes = new ArrayList<Long>();
+    reader.readAll( new LongConsumer() {
+      public void accept( long value ) {
+        sizes.add( value );
+      }
+    } );
+    return sizes;
+  }
+
+  @Test
+  public void testReadAll() throws Exception {
+    ByteSizeColumnReader reader = new ByteSizeColumnReader( new StringReader( CSV ), 1, ',', format );
+    reader.skipLine();
+    List<Long> sizes = readAll( reader );
+    assertEquals( sizes.size(), 4 );
+    assertEquals( (long) sizes.get( 0 ), 1500000000L );
+    assertEquals( (long) sizes.get( 1 ), 300 * 1024L );
+    assertEquals( (long) sizes.get( 2 ), 12L );
+    assertEquals( (long) sizes.get( 3 ), 7L );
+    assertEquals( reader.getLineNumber(), 6 );
+  }
+
+  /**
+   * A buffer smaller than a line forces it to be compacted and grown.
+   */
+  @Test
+  public void testSmallBuffer() throws Exception {
+    ByteSizeColumnReader reader = new ByteSizeColumnReader( new StringReader( CSV ), 1, ',', format, 4 );
+    reader.skipLine();
+    long[] chunk = new long[3];
+    assertEquals( reader.read( chunk ), 3 );
+    assertEquals( chunk[2], 12L );
+    assertEquals( reader.read( chunk ), 1 );
+    assertEquals( chunk[0], 7L );
+    assertEquals( reader.read( chunk ), -1 );
+  }
+
+  @Test
+  public void testInputStream() throws Exception {
+    byte[] tsv = "x\t2 KiB\ny\t3 kB\n".getBytes( StandardCharsets.UTF_8 );
+    ByteSizeColumnReader reader = new ByteSizeColumnReader(
+      new ByteArrayInputStream( tsv ), StandardCharsets.UTF_8, 1, '\t', format );
+    List<Long> sizes = readAll( reader );
+    assertEquals( sizes.size(), 2 );
+    assertEquals( (long) sizes.get( 0 ), 2048L );
+    assertEquals( (long) sizes.get( 1 ), 3000L );
+  }
+
+  @Test
+  public void testInvalidSize() throws Exception {
+    ByteSizeColumnReader reader = new ByteSizeColumnReader(
+      new StringReader( "1 kB\nlots\n" ), 0, ',', format );
+    try {
+      readAll( reader );
+      fail();
+    } catch ( ParseException e ) {
+      assertEquals( e.getMessage(), "Line 2: invalid size: lots" );
+      assertEquals( e.getErrorOffset(), 0 );
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+
+public class ByteSizeColumnScannerTest {
+
+  ByteSizeFormat format = new ByteSizeFormatBuilder().locale( Locale.US ).build();
+
+  static ByteSizeColumnScanner.Result scan( String text, ByteSizeColumnScanner scanner ) throws IOException {
+    Path file = Files.createTempFile( "sizes", ".csv" );
+    try {
+      Files.write( file, text.getBytes( StandardCharsets.UTF_8 ) );
+      ForkJoinPool pool = new ForkJoinPool( 3 );
+      try {
+        return scanner.scan( file, pool );
+      } finally {
+        pool.shutdown();
+      }
+    } finally {
+      Files.delete( file );
+    }
+  }
+
+  @Test
+  public void testSameAsReader() throws Exception {
+    ByteSizeColumnScanner.Result result = scan( ByteSizeColumnReaderTest.CSV,
+      new ByteSizeColumnScanner( 1, ',', format ) );
+    assertEquals( result.rowCount(), 5 );
+    BitSet header = new BitSet();
+    header.set( 0 );
+    assertEquals( result.failures(), header );
+
+    ByteSizeColumnReader reader = new ByteSizeColumnReader(
+      new StringReader( ByteSizeColumnReaderTest.CSV ), 1, ',', format );
+    reader.skipLine();
+    long[] expected = new long[4];
+    assertEquals( reader.read( expected ), 4 );
+    for ( int i = 0; i < expected.length; i++ ) {
+      assertEquals( result.sizes()[i + 1], expected[i] );
+    }
+  }
+
+  @Test
+  public void testSkipHeader() throws Exception {
+    ByteSizeColumnScanner.Result result = scan( ByteSizeColumnReaderTest.CSV,
+      new ByteSizeColumnScanner( 1, ',', true, format ) );
+    assertEquals( result.rowCount(), 4 );
+    assertEquals( result.failures(), new BitSet() );
+    assertEquals( result.sizes()[0], 1500000000L );
+    assertEquals( result.sizes()[3], 7L );
+    assertEquals( scan( "size", new ByteSizeColumnScanner( 0, ',', true, format ) ).rowCount(), 0 );
+  }
+
+  /**
+   * Chunks of a few dozen bytes split the file in many places; every row is
+   * still read once, in order.
+   */
+  @Test
+  public void testManyChunks() throws Exception {
+    Random random = new Random( 5 );
+    StringBuilder text = new StringBuilder();
+    long[] expected = new long[2000];
+    BitSet expectedFailures = new BitSet();
+    for ( int i = 0; i < expected.length; i++ ) {
+      long size = random.nextLong() >>> ( 2 + random.nextInt( 62 ) );
+      text.append( "row" ).append( i ).append( '\t' );
+      if ( i % 97 == 3 ) {
+        // not a size; the bytes are not ASCII
+        text.append( "\u0109irka\u016d" );
+        expectedFailures.set( i );
+      } else if ( i % 101 == 7 ) {
+        // an empty field
+        text.append( "\r\n" );
+        expectedFailures.set( i );
+        continue;
+      } else {
+        text.append( size );
+        expected[i] = size;
+      }
+      text.append( "\tno\u015do" ).append( i % 3 == 0 ? "\r\n" : "\n" );
+      if ( i % 50 == 0 ) {
+        text.append( "  \n" );
+      }
+    }
+    text.setLength( text.length() - 1 );
+
+    ByteSizeColumnScanner.Result result = scan( text.toString(), new ByteSizeColumnScanner( 1, '\t', false, format, 40 ) );
+    assertEquals( result.rowCount(), expected.length );
+    assertEquals( result.sizes(), expected );
+    assertEquals( result.failures(), expectedFailures );
+  }
+
+  @Test
+  public void testFormattedSizesAreRounded() throws Exception {
+    StringBuilder text = new StringBuilder();
+    for ( int i = 1; i <= 100; i++ ) {
+      text.append( format.format( byteSize( i * 1.37, ByteSizeUnits.MiB ), WordLength.FULL ) ).append( '\n' );
+    }
+    ByteSizeColumnScanner.Result result = scan( text.toString(), new ByteSizeColumnScanner( 0, ',', false, format, 64 ) );
+    assertEquals( result.failures().cardinality(), 0 );
+    for ( int i = 0; i < 100; i++ ) {
+      String line = text.toString().split( "\n" )[i];
+      assertEquals( result.sizes()[i], Math.round( format.parse( line ).numberOfBytes( ByteSizeUnits.BYTE ) ) );
+    }
+  }
+
+  @Test
+  public void testCallsOverridingParse() throws Exception {
+    ByteSizeColumnScanner.Result result = scan( "a,[2 KiB]\nb,1 KiB\n",
+      new ByteSizeColumnScanner( 1, ',', ByteSizeColumnsTest.BRACKETED_PARSE ) );
+    assertEquals( result.failures(), new BitSet() );
+    assertEquals( result.sizes()[0], 2048L );
+    assertEquals( result.sizes()[1], 1024L );
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    assertEquals( scan( "", new ByteSizeColumnScanner( 0, ',', format ) ).rowCount(), 0 );
+  }
+
+}
@@ -0,0 +1,228 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+import org.testng.annotations.Test;
+
+import java.nio.LongBuffer;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.ResourceBundle;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ByteSizeColumnsTest {
+
+  ByteSizeFormat format = new ByteSizeFormatBuilder()
+    .locale( Locale.US )
+    .unitSystem( ByteSizeUnits.IEC )
+    .build();
+
+  static long[] randomSizes( int n ) {
+    Random random = new Random( 11 );
+    long[] sizes = new long[n];
+    for ( int i = 0; i < n; i++ ) {
+      sizes[i] = random.nextLong() >>> random.nextInt( 64 );
+    }
+    return sizes;
+  }
+
+  /**
+   * Each value is formatted exactly as the single-value API would.
+   */
+  @Test
+  public void testMatchesSingleValueFormat() {
+    long[] sizes = randomSizes( 500 );
+    sizes[0] = 0;
+    sizes[1] = 1;
+    sizes[2] = Long.MAX_VALUE;
+    String[] strings = ByteSizeColumns.format( sizes, format, WordLength.FULL );
+    for ( int i = 0; i < sizes.length; i++ ) {
+      assertEquals( strings[i], format.format( byteSize( sizes[i] ), WordLength.FULL ) );
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    long[] sizes = randomSizes( ByteSizeColumns.PARALLEL_CHUNK_SIZE * 3 + 17 );
+    FormattedByteSizes sequential = ByteSizeColumns.format(
+      LongBuffer.wrap( sizes ), format, WordLength.ABBREVIATION, null, false );
+    FormattedByteSizes parallel = ByteSizeColumns.format(
+      LongBuffer.wrap( sizes ), format, WordLength.ABBREVIATION, null, true );
+    assertEquals( parallel.size(), sizes.length );
+    assertEquals( parallel.text().toString(), sequential.text().toString() );
+    for ( int i = 0; i < sizes.length; i++ ) {
+      assertEquals( parallel.end( i ), sequential.end( i ) );
+    }
+  }
+
+  /**
+   * Only the buffer's remaining values are formatted, and the column is reusable.
+   */
+  @Test
+  public void testBufferRegionAndReuse() {
+    LongBuffer buffer = LongBuffer.wrap( new long[]{ 1, 2048, 3 * 1024 * 1024, 4 } );
+    buffer.position( 1 ).limit( 3 );
+    FormattedByteSizes column = ByteSizeColumns.format( buffer, format, WordLength.ABBREVIATION, null, false );
+    assertEquals( column.size(), 2 );
+    assertEquals( column.get( 0 ), "2 KiB" );
+    assertEquals( column.get( 1 ), "3 MiB" );
+    assertEquals( buffer.position(), 1 );
+
+    ByteSizeColumns.format( new long[]{ 5 }, format, WordLength.FULL, column );
+    assertEquals( column.size(), 1 );
+    StringBuilder out = new StringBuilder();
+    column.appendTo( 0, out );
+    assertEquals( out.toString(), "5 bytes" );
+  }
+
+  /**
+   * Parsing a column split across several tasks gives each value the single-value
+   * parse would, and marks the failures.
+   */
+  @Test
+  public void testParseAllMatchesSingleValueParse() throws ParseException {
+    long[] sizes = randomSizes( 3 * ByteSizeColumns.PARALLEL_CHUNK_SIZE + 100 );
+    List<String> texts = new ArrayList<String>( Arrays.asList(
+      ByteSizeColumns.format( sizes, format, WordLength.ABBREVIATION ) ) );
+    texts.set( 5, "12 furlongs" );
+    texts.set( 64, "" );
+    texts.set( ByteSizeColumns.PARALLEL_CHUNK_SIZE + 1, "1 YiB" );
+    texts.set( texts.size() - 1, "1.4 b" );
+
+    ForkJoinPool pool = new ForkJoinPool( 3 );
+    long[] parsed = new long[texts.size()];
+    BitSet failures;
+    try {
+      failures = ByteSizeColumns.parseAll( texts, format, parsed, pool );
+    } finally {
+      pool.shutdown();
+    }
+
+    BitSet expectedFailures = new BitSet();
+    expectedFailures.set( 5 );
+    expectedFailures.set( 64 );
+    expectedFailures.set( ByteSizeColumns.PARALLEL_CHUNK_SIZE + 1 );
+    assertEquals( failures, expectedFailures );
+    assertEquals( parsed[5], 0 );
+    assertEquals( parsed[texts.size() - 1], 1 );
+    for ( int i = 0; i < texts.size(); i++ ) {
+      if ( ! failures.get( i ) ) {
+        ByteSize expected = format.parse( texts.get( i ) );
+        assertEquals( parsed[i], expected instanceof ExactByteSize
+          ? ( (ExactByteSize) expected ).numberOfBytes().longValueExact()
+          : Math.round( expected.numberOfBytes( ByteSizeUnits.BYTE ) ), texts.get( i ) );
+      }
+    }
+  }
+
+  /**
+   * Only a built format's internals are used directly; a subclass that overrides
+   * formatTo is called, and so is an installed listener.
+   */
+  @Test
+  public void testFormatCallsOverridingFormatAndListener() {
+    ByteSizeFormat bracketed = new AbstractByteSizeFormat() {
+      protected NumberFormat getNumberFormat() {
+        return NumberFormat.getInstance( Locale.US );
+      }
+      protected ResourceBundle getResourceBundle() {
+        return ByteSizeFormats.getResourceBundle( Locale.US );
+      }
+      protected Collection<ByteSizeUnit> getUnits() {
+        return ByteSizeUnits.getAllDefaultUnits();
+      }
+      protected ByteSizeUnitSystem getUnitSystem() {
+        return ByteSizeUnits.IEC;
+      }
+      public void formatTo( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength, StringBuilder out ) {
+        out.append( '[' );
+        super.formatTo( byteSize, unit, wordLength, out );
+        out.append( ']' );
+      }
+    };
+    assertEquals( ByteSizeColumns.format( new long[]{ 1, 2048 }, bracketed, WordLength.ABBREVIATION ),
+      new String[]{ "[1 b]", "[2 KiB]" } );
+
+    ByteSizeFormatMetrics metrics = new ByteSizeFormatMetrics();
+    ByteSizeInstrumentation.setListener( metrics );
+    try {
+      ByteSizeColumns.format( new long[]{ 1, 2, 3 }, format, WordLength.ABBREVIATION );
+    } finally {
+      ByteSizeInstrumentation.setListener( null );
+    }
+    assertEquals( metrics.formatCount(), 3 );
+  }
+
+  /**
+   * Built formats are parsed in parallel, each task with its own number format.
+   */
+  @Test
+  public void testParseAllInParallel() {
+    String[] texts = new String[4 * ByteSizeColumns.PARALLEL_CHUNK_SIZE];
+    for ( int i = 0; i < texts.length; i++ ) {
+      texts[i] = i + ".25 KiB";
+    }
+    long[] parsed = new long[texts.length];
+    assertTrue( ByteSizeColumns.parseAll( texts, format, parsed ).isEmpty() );
+    for ( int i = 0; i < texts.length; i++ ) {
+      assertEquals( parsed[i], i * 1024L + 256 );
+    }
+  }
+
+  /**
+   * A subclass's own parse is called, as its own format is.
+   */
+  @Test
+  public void testParseAllCallsOverridingParse() {
+    assertEquals( parseAll( new String[]{ "1 KiB", "[2 KiB]", "[x]" }, BRACKETED_PARSE ),
+      new long[]{ 1024, 2048, 0 } );
+  }
+
+  static long[] parseAll( String[] texts, ByteSizeFormat format ) {
+    long[] parsed = new long[texts.length];
+    ByteSizeColumns.parseAll( texts, format, parsed );
+    return parsed;
+  }
+
+  /**
+   * Also accepts sizes in brackets; a new number format per call makes it safe
+   * for concurrent use.
+   */
+  static final ByteSizeFormat BRACKETED_PARSE = new AbstractByteSizeFormat() {
+    protected NumberFormat getNumberFormat() {
+      return NumberFormat.getInstance( Locale.US );
+    }
+    protected ResourceBundle getResourceBundle() {
+      return ByteSizeFormats.getResourceBundle( Locale.US );
+    }
+    protected Collection<ByteSizeUnit> getUnits() {
+      return ByteSizeUnits.getAllDefaultUnits();
+    }
+    protected ByteSizeUnitSystem getUnitSystem() {
+      return ByteSizeUnits.IEC;
+    }
+    public ByteSize parse( CharSequence s, int start, int end, ParsePosition position ) {
+      if ( end - start >= 2 && s.charAt( start ) == '[' && s.charAt( end - 1 ) == ']' ) {
+        position.setIndex( start + 1 );
+        ByteSize byteSize = super.parse( s, start + 1, end - 1, position );
+        if ( byteSize != null ) {
+          position.setIndex( end );
+        }
+        return byteSize;
+      }
+      return super.parse( s, start, end, position );
+    }
+  };
+
+}
@@ -0,0 +1,77 @@
+package org.codeswarm.bytesize;
+
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.codeswarm.bytesize.ByteSizeUnits.*;
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+
+public class ByteSizeCounterTest {
+
+  @Test
+  public void testConcurrentAdds() throws Exception {
+    final ByteSizeCounter counter = new ByteSizeCounter( 4 );
+    final int threads = 8, adds = 100000;
+    ExecutorService executor = Executors.newFixedThreadPool( threads );
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for ( int t = 0; t < threads; t++ ) {
+        final long amount = t + 1;
+        futures.add( executor.submit( new Runnable() {
+          public void run() {
+            for ( int i = 0; i < adds; i++ ) {
+              counter.add( amount );
+            }
+          }
+        } ) );
+      }
+      for ( Future<?> future : futures ) {
+        future.get( 60, TimeUnit.SECONDS );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // (1 + 2 + ... + 8) * adds
+    assertEquals( counter.sum(), byteSize( 36L * adds ) );
+  }
+
+  /**
+   * Totals beyond the long range are kept exactly rather than wrapping.
+   */
+  @Test
+  public void testOverflow() {
+    ByteSizeCounter counter = new ByteSizeCounter( 1 );
+    counter.add( Long.MAX_VALUE );
+    counter.add( Long.MAX_VALUE );
+    counter.add( 2 );
+    BigInteger expected = BigInteger.valueOf( Long.MAX_VALUE ).shiftLeft( 1 ).add( BigInteger.valueOf( 2 ) );
+    assertEquals( counter.sum().numberOfBytes(), expected );
+    counter.add( -Long.MAX_VALUE );
+    counter.add( -Long.MAX_VALUE );
+    assertEquals( counter.sum(), byteSize( 2 ) );
+  }
+
+  @Test
+  public void testAddByteSizes() {
+    ByteSizeCounter counter = new ByteSizeCounter();
+    counter.add( byteSize( 3, KiB ) );
+    counter.add( byteSize( 0.5, KiB ) );
+    counter.add( YB );
+    assertEquals( counter.sum(), byteSize( BigInteger.TEN.pow( 24 ).add( BigInteger.valueOf( 3584 ) ) ) );
+  }
+
+  @Test
+  public void testSumThenReset() {
+    ByteSizeCounter counter = new ByteSizeCounter();
+    counter.add( 5 );
+    counter.add( ZB );
+    assertEquals( counter.sumThenReset(), byteSize( BigInteger.TEN.pow( 21 ).add( BigInteger.valueOf( 5 ) ) ) );
+    assertEquals( counter.sum(), byteSize( 0 ) );
+  }
+
+}
@@ -1,16 +1,25 @@
 package org.codeswarm.bytesize;
 
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
 import static org.codeswarm.bytesize.ByteSizeFormat.WordLength.*;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.Arrays;
 import java.util.Locale;
 
 import static org.codeswarm.bytesize.ByteSizes.byteSize;
 import static org.testng.Assert.assertEquals;
 import static org.codeswarm.bytesize.ByteSizeUnits.*;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 public class ByteSizeFormatBuilderTest {
@@ -56,4 +65,111 @@ public class ByteSizeFormatBuilderTest {
     assertTrue( byteSize.compareTo( byteSize( 1280, MiB ) ) == 0 );
   }
 
+  @Test
+  public void testFormatToStringBuilder() {
+    StringBuilder out = new StringBuilder( "size: " );
+    esperantoIEC.formatTo( byteSize( 1280, MiB ), FULL, out );
+    assertEquals( out.toString(), "size: 1.25 gibibajtoj" );
+  }
+
+  @Test
+  public void testFormatToAppendable() throws IOException {
+    StringWriter out = new StringWriter();
+    esperantoIEC.formatTo( byteSize( 8, MiB ), KiB, ABBREVIATION, out );
+    out.append( ';' );
+    esperantoIEC.formatTo( byteSize( 8, MiB ), ABBREVIATION, out );
+    assertEquals( out.toString(), "8,192 KiB;8 MiB" );
+  }
+
+  /**
+   * A region in the middle of a longer string; the number must not run on into "34".
+   */
+  @Test
+  public void testParseStringRegion() {
+    String s = "size=12 KiB34";
+    ParsePosition position = new ParsePosition( 0 );
+    ByteSize byteSize = esperantoIEC.parse( s, 5, 11, position );
+    assertEquals( byteSize, byteSize( 12, KiB ) );
+    assertEquals( position.getIndex(), 11 );
+    assertEquals( esperantoIEC.parse( "[2]34", 1, 2, position ), byteSize( 2 ) );
+  }
+
+  @Test
+  public void testParseCharBufferRegion() {
+    CharBuffer chars = CharBuffer.wrap( "a, 1.25 gibibajtoj ,b" );
+    ParsePosition position = new ParsePosition( 0 );
+    ByteSize byteSize = esperantoIEC.parse( chars, 2, 19, position );
+    assertTrue( byteSize.compareTo( byteSize( 1280, MiB ) ) == 0 );
+    assertEquals( position.getIndex(), 19 );
+  }
+
+  @Test
+  public void testParseFailureReportsErrorIndex() {
+    ParsePosition position = new ParsePosition( 0 );
+    assertNull( esperantoIEC.parse( "xx 4x KiB", 3, 9, position ) );
+    assertEquals( position.getErrorIndex(), 4 );
+    assertEquals( position.getIndex(), 0 );
+  }
+
+  @Test
+  public void testParseByteBufferRegion() {
+    ByteBuffer bytes = ByteBuffer.allocateDirect( 32 );
+    bytes.put( "\u00e9t\u00e9|8 MiB|".getBytes( StandardCharsets.UTF_8 ) );
+    ParsePosition position = new ParsePosition( 0 );
+    assertEquals( esperantoIEC.parse( bytes, 6, 11, position ), byteSize( 8, MiB ) );
+    assertEquals( position.getIndex(), 11 );
+
+    // non-ASCII text inside the region is decoded, and the error index is in bytes
+    assertNull( esperantoIEC.parse( bytes, 2, 11, position ) );
+    assertEquals( position.getErrorIndex(), 2 );
+  }
+
+  /**
+   * Each malformed sequence becomes one U+FFFD, mapped back to the bytes it replaced.
+   */
+  @Test
+  public void testDecodeMalformedByteIndexes() {
+    ByteBuffer bytes = ByteBuffer.wrap( new byte[]{
+      'x', (byte) 0xff, 'a', (byte) 0xe2, (byte) 0x82, 'b', (byte) 0xc3, (byte) 0xa9, 'c' } );
+    bytes.position( 1 );
+    int[] byteIndex = new int[9];
+    assertEquals( ByteBufferText.decode( bytes, byteIndex ), "\uFFFDa\uFFFDb\u00e9c" );
+    assertEquals( Arrays.copyOf( byteIndex, 7 ), new int[]{ 1, 2, 3, 5, 6, 8, 9 } );
+  }
+
+  @Test
+  public void testLazy() {
+    LazyFormattedByteSize lazy = esperantoIEC.lazy( byteSize( 1280, MiB ), FULL );
+    assertEquals( lazy.toString(), "1.25 gibibajtoj" );
+    StringBuilder out = new StringBuilder();
+    esperantoIEC.lazy( byteSize( 8, MiB ), KiB, ABBREVIATION ).formatTo( out );
+    assertEquals( out.toString(), "8,192 KiB" );
+  }
+
+  /**
+   * Nothing is formatted until the lazy object is rendered, and then only once.
+   */
+  @Test
+  public void testLazyDefersFormatting() {
+    final int[] calls = { 0 };
+    ByteSizeFormat counting = new ByteSizeFormat() {
+      public String format( ByteSize byteSize, WordLength wordLength ) {
+        calls[0]++;
+        return esperantoIEC.format( byteSize, wordLength );
+      }
+      public String format( ByteSize byteSize, ByteSizeUnit unit, WordLength wordLength ) {
+        calls[0]++;
+        return esperantoIEC.format( byteSize, unit, wordLength );
+      }
+      public ByteSize parse( String s ) throws ParseException {
+        return esperantoIEC.parse( s );
+      }
+    };
+    LazyFormattedByteSize lazy = counting.lazy( byteSize( 8, MiB ), ABBREVIATION );
+    assertEquals( calls[0], 0 );
+    assertEquals( lazy.toString(), "8 MiB" );
+    assertEquals( lazy.toString(), "8 MiB" );
+    assertEquals( calls[0], 1 );
+  }
+
 }
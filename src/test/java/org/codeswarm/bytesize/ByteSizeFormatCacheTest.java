@@ -0,0 +1,106 @@
+package org.codeswarm.bytesize;
+
+import org.testng.annotations.Test;
+
+import java.text.DecimalFormat;
+import java.util.Locale;
+
+import static org.codeswarm.bytesize.ByteSizeFormat.WordLength.ABBREVIATION;
+import static org.codeswarm.bytesize.ByteSizeUnits.*;
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class ByteSizeFormatCacheTest {
+
+  @Test
+  public void testSameConfigurationIsShared() {
+    ByteSizeFormatCache cache = new ByteSizeFormatCache( 8 );
+    ByteSizeFormat a = new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH ).unitSystem( IEC ).build();
+    ByteSizeFormat b = new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH ).unitSystem( IEC ).build();
+    ByteSizeFormat c = new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH ).unitSystem( SI ).build();
+    assertSame( a, b );
+    assertNotSame( a, c );
+    assertEquals( cache.hitCount(), 1 );
+    assertEquals( cache.missCount(), 2 );
+    assertEquals( cache.size(), 2 );
+  }
+
+  /**
+   * Number formats are compared by value, and the cached copy
+   * is not affected by later changes to the builder's instance.
+   */
+  @Test
+  public void testNumberFormat() {
+    ByteSizeFormatCache cache = new ByteSizeFormatCache( 8 );
+    DecimalFormat numberFormat = new DecimalFormat( "#,###.##" );
+    ByteSizeFormat a = new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH )
+      .numberFormat( numberFormat ).build();
+    ByteSizeFormat b = new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH )
+      .numberFormat( new DecimalFormat( "#,###.##" ) ).build();
+    assertSame( a, b );
+
+    numberFormat.applyPattern( "0.000" );
+    ByteSizeFormat c = new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH )
+      .numberFormat( numberFormat ).build();
+    assertNotSame( a, c );
+    assertEquals( a.format( byteSize( 1500 ), kB, ABBREVIATION ), "1.5 kB" );
+    assertEquals( c.format( byteSize( 1500 ), kB, ABBREVIATION ), "1.500 kB" );
+  }
+
+  @Test
+  public void testEviction() {
+    ByteSizeFormatCache cache = new ByteSizeFormatCache( 2 );
+    ByteSizeFormat en = new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH ).build();
+    new ByteSizeFormatBuilder().cache( cache ).locale( Locale.forLanguageTag( "sk" ) ).build();
+    new ByteSizeFormatBuilder().cache( cache ).locale( Locale.forLanguageTag( "eo" ) ).build();
+    assertEquals( cache.size(), 2 );
+    assertNotSame( new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH ).build(), en );
+  }
+
+  /**
+   * Clearing while other threads add formats leaves no entry that eviction
+   * would never reach.
+   */
+  @Test
+  public void testClearWhileAdding() throws Exception {
+    final ByteSizeFormatCache cache = new ByteSizeFormatCache( 4 );
+    Thread[] threads = new Thread[4];
+    for ( int t = 0; t < threads.length; t++ ) {
+      final int offset = t;
+      threads[t] = new Thread( () -> {
+        for ( int i = 0; i < 2000; i++ ) {
+          new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH )
+            .numberFormat( fractionDigits( ( i + offset ) % 12 ) ).build();
+          if ( i % 7 == offset ) {
+            cache.clear();
+          }
+        }
+      } );
+      threads[t].start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    for ( int i = 0; i < 8; i++ ) {
+      new ByteSizeFormatBuilder().cache( cache ).locale( Locale.ENGLISH )
+        .numberFormat( fractionDigits( 12 + i ) ).build();
+    }
+    assertEquals( cache.size(), 4 );
+  }
+
+  private static DecimalFormat fractionDigits( int n ) {
+    DecimalFormat numberFormat = new DecimalFormat( "0" );
+    numberFormat.setMinimumFractionDigits( n );
+    return numberFormat;
+  }
+
+  @Test
+  public void testDisabled() {
+    assertNotSame(
+      new ByteSizeFormatBuilder().cache( null ).locale( Locale.ENGLISH ).build(),
+      new ByteSizeFormatBuilder().cache( null ).locale( Locale.ENGLISH ).build() );
+  }
+
+}
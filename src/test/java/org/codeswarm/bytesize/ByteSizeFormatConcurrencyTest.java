@@ -0,0 +1,90 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+import org.testng.annotations.Test;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+
+public class ByteSizeFormatConcurrencyTest {
+
+  static final int THREADS = 8;
+  static final int SIZES = 2000;
+  static final int ROUNDS = 5;
+
+  /**
+   * Many threads share one format. Every result must match what a
+   * single thread produced for the same input beforehand.
+   */
+  @Test
+  public void testConcurrentFormatAndParse() throws Exception {
+
+    final ByteSizeFormat format = new ByteSizeFormatBuilder()
+      .locale( Locale.forLanguageTag( "sk" ) )
+      .unitSystem( ByteSizeUnits.IEC )
+      .numberFormat( new DecimalFormat( "#,##0.###" ) )
+      .build();
+
+    Random random = new Random( 7 );
+    final ByteSize[] sizes = new ByteSize[SIZES];
+    final String[] expectedStrings = new String[SIZES];
+    final ByteSize[] expectedSizes = new ByteSize[SIZES];
+    for ( int i = 0; i < SIZES; i++ ) {
+      sizes[i] = byteSize( random.nextLong() >>> random.nextInt( 64 ) );
+      expectedStrings[i] = format.format( sizes[i], WordLength.FULL );
+      expectedSizes[i] = format.parse( expectedStrings[i] );
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+    try {
+      final CountDownLatch start = new CountDownLatch( 1 );
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for ( int t = 0; t < THREADS; t++ ) {
+        final int offset = t * ( SIZES / THREADS );
+        futures.add( executor.submit( new Callable<Void>() {
+          public Void call() throws Exception {
+            start.await();
+            for ( int round = 0; round < ROUNDS; round++ ) {
+              for ( int j = 0; j < SIZES; j++ ) {
+                int i = ( offset + j ) % SIZES;
+                String string = format.format( sizes[i], WordLength.FULL );
+                assertEquals( string, expectedStrings[i] );
+                assertEquals( format.parse( string ).compareTo( expectedSizes[i] ), 0 );
+              }
+            }
+            return null;
+          }
+        } ) );
+      }
+      start.countDown();
+      for ( Future<Void> future : futures ) {
+        future.get( 60, TimeUnit.SECONDS );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Changing the number format after building does not affect the built format.
+   */
+  @Test
+  public void testNumberFormatIsCopied() {
+    DecimalFormat numberFormat = new DecimalFormat( "#,###.##" );
+    ByteSizeFormat format = new ByteSizeFormatBuilder()
+      .locale( Locale.US )
+      .unitSystem( ByteSizeUnits.SI )
+      .numberFormat( numberFormat )
+      .build();
+    numberFormat.setMaximumFractionDigits( 0 );
+    assertEquals( format.format( byteSize( 1500 ), WordLength.ABBREVIATION ), "1.5 kB" );
+  }
+
+}
@@ -4,17 +4,26 @@ import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
 import org.codeswarm.bytesize.ByteSizeFormats.WordType;
 import org.testng.annotations.Test;
 
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.ResourceBundle;
 
 import static java.lang.Math.pow;
 import static org.codeswarm.bytesize.ByteSizeUnits.*;
 import static org.codeswarm.bytesize.ByteSizes.byteSize;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class ByteSizeFormatsTest {
 
@@ -126,4 +135,284 @@ public class ByteSizeFormatsTest {
     assertEquals( unit, ByteSizeUnits.YiB );
   }
 
+  /**
+   * "kilobytes" ends with "bytes"; the longer word must win.
+   */
+  @Test
+  public void testParseLongestUnitWord() throws ParseException {
+    ResourceBundle resourceBundle = ByteSizeFormats.getResourceBundle( Locale.US );
+    NumberFormat numberFormat = NumberFormat.getInstance( Locale.US );
+    Collection<ByteSizeUnit> units = ByteSizeUnits.getAllDefaultUnits();
+    assertEquals( ByteSizeFormats.parse( "5 kilobytes", numberFormat, units, resourceBundle ), byteSize( 5, kB ) );
+    assertEquals( ByteSizeFormats.parse( "5 bytes", numberFormat, units, resourceBundle ), byteSize( 5 ) );
+    assertEquals( ByteSizeFormats.parse( "5 b", numberFormat, units, resourceBundle ), byteSize( 5 ) );
+  }
+
+  @Test
+  public void testUnitVocabularyMatch() {
+    UnitVocabulary vocabulary = UnitVocabulary.compile(
+      ByteSizeUnits.getAllDefaultUnits(), ByteSizeFormats.getResourceBundle( Locale.US ) );
+    String s = "[12 mebibytes]";
+    int match = vocabulary.match( s, 1, s.length() - 1 );
+    assertEquals( vocabulary.unit( match ), MiB );
+    assertEquals( vocabulary.length( match ), "mebibytes".length() );
+    assertEquals( vocabulary.match( "12", 0, 2 ), -1 );
+  }
+
+  /**
+   * Every unit boundary, either side, for exact and approximate sizes.
+   */
+  @Test
+  public void testDetermineReasonableUnitBoundaries() {
+    for ( ByteSizeUnitSystem system : Arrays.asList( SI, IEC ) ) {
+      List<ByteSizeUnit> units = system.units();
+      for ( int i = 1; i < units.size(); i++ ) {
+        ByteSizeUnit unit = units.get( i );
+        ExactByteSize below = byteSize( unit.numberOfBytes().subtract( BigInteger.ONE ) );
+        assertEquals( ByteSizeFormats.determineReasonableUnit( unit, system ), unit );
+        assertEquals( ByteSizeFormats.determineReasonableUnit( below, system ), units.get( i - 1 ) );
+        assertEquals( ByteSizeFormats.determineReasonableUnit( byteSize( 1.0, unit ), system ), unit );
+        assertEquals( ByteSizeFormats.determineReasonableUnit( byteSize( 0.99, unit ), system ), units.get( i - 1 ) );
+      }
+      assertEquals( ByteSizeFormats.determineReasonableUnit( byteSize( 0 ), system ), BYTE );
+      assertEquals( ByteSizeFormats.determineReasonableUnit( byteSize( -5000 ), system ), BYTE );
+      assertEquals( ByteSizeFormats.determineReasonableUnit( byteSize( Long.MAX_VALUE ), system ),
+        system == SI ? EB : EiB );
+    }
+  }
+
+  /**
+   * A user-defined system that mixes SI and IEC units.
+   */
+  @Test
+  public void testDetermineReasonableUnitCustomSystem() {
+    ByteSizeUnitSystem system = new ByteSizeUnitSystem() {
+      public List<ByteSizeUnit> units() {
+        return Arrays.asList( BYTE, KiB, MB );
+      }
+    };
+    assertEquals( ByteSizeFormats.determineReasonableUnit( byteSize( 2000 ), system ), KiB );
+    assertEquals( ByteSizeFormats.determineReasonableUnit( byteSize( 2, GB ), system ), MB );
+  }
+
+  /**
+   * The decimal scanner gives the same result and error index as the number
+   * format for every input, whether it handles the input or falls back.
+   */
+  @Test
+  public void testDecimalScannerMatchesNumberFormat() {
+    List<String> inputs = new ArrayList<String>( Arrays.asList(
+      "0", "-0", "-0.0", "7", "1.5", "1,5", "1 5", "2.0", "2.50", ".5", "5.", ".", "-", "-.5",
+      "1,234,567.891", "1,,2", ",5", "5,", "1.2.3", "1.2,3", "1e3", "1E3", "+1", "--1",
+      "99999999999999999", "999999999999999999", "9999999999999999999", "9223372036854775807",
+      "0.1", "0.30000000000000004", "123456789.123456789", "1.00000000000000000000001",
+      "00012", "1 234,5", "1\u00a0234,5", "1\u202f234,5", "\u22121", "\u0661\u0662", "\u221e" ) );
+    Random random = new Random( 3 );
+    // no exponents: the number format would expand "1E999999999" in full
+    String alphabet = "0123456789.,- \u00a0";
+    for ( int i = 0; i < 2000; i++ ) {
+      StringBuilder input = new StringBuilder();
+      for ( int length = 1 + random.nextInt( 12 ); length > 0; length-- ) {
+        input.append( alphabet.charAt( random.nextInt( alphabet.length() ) ) );
+      }
+      inputs.add( input.toString() );
+    }
+    for ( String tag : new String[]{ "en", "sk", "de", "fr", "de-CH", "ar-EG" } ) {
+      NumberFormat numberFormat = NumberFormat.getInstance( Locale.forLanguageTag( tag ) );
+      DecimalScanner scanner = DecimalScanner.of( numberFormat );
+      UnitVocabulary vocabulary = UnitVocabulary.compile(
+        getAllDefaultUnits(), ByteSizeFormats.getResourceBundle( Locale.ENGLISH ) );
+      for ( String input : inputs ) {
+        for ( String text : new String[]{ input, input + " MB" } ) {
+          ParsePosition fast = new ParsePosition( 0 ), slow = new ParsePosition( 0 );
+          ByteSize expected = ByteSizeFormats.parse( text, 0, text.length(), numberFormat, null, vocabulary, slow );
+          ByteSize actual = ByteSizeFormats.parse( text, 0, text.length(), numberFormat, scanner, vocabulary, fast );
+          String message = tag + " \"" + text + "\"";
+          assertEquals( actual, expected, message );
+          assertEquals( fast.getIndex(), slow.getIndex(), message );
+          assertEquals( fast.getErrorIndex(), slow.getErrorIndex(), message );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecimalScannerHandlesCommonNumbers() {
+    DecimalScanner scanner = DecimalScanner.of( NumberFormat.getInstance( Locale.US ) );
+    assertEquals( scanner.parse( "1,234", 0, 5, BYTE ), byteSize( 1234 ) );
+    assertEquals( scanner.parse( "1.5", 0, 3, GB ), byteSize( 1.5, GB ) );
+    assertEquals( scanner.parse( "-2.25", 0, 5, KiB ), byteSize( -2.25, KiB ) );
+    assertEquals( scanner.parse( "1e3", 0, 3, BYTE ), null );
+    assertEquals( DecimalScanner.of( NumberFormat.getPercentInstance( Locale.US ) ), null );
+  }
+
+  /**
+   * The decimal renderer writes the same text as the number format for every
+   * value it accepts, and its rounded value agrees with the digits written.
+   */
+  @Test
+  public void testDecimalRendererMatchesNumberFormat() {
+    List<Double> numbers = new ArrayList<Double>( Arrays.asList(
+      0.0, -0.0, 1.0, 0.5, 1.5, 2.5, 0.125, 0.95, 0.995, 0.9995, 1.005, 1.015, 1.0049999999999999,
+      0.1, 0.30000000000000004, 999.999, 1234567.891, 1e15, 4503599627370495.0, 4503599627370496.0,
+      1e-10, 4.9e-324, -1.0, Double.NaN, Double.POSITIVE_INFINITY, Double.MAX_VALUE ) );
+    Random random = new Random( 7 );
+    for ( int i = 0; i < 3000; i++ ) {
+      switch ( i % 3 ) {
+        case 0: numbers.add( random.nextDouble() * 2 ); break;
+        case 1: numbers.add( random.nextDouble() * pow( 10, random.nextInt( 16 ) ) ); break;
+        // exact ties, such as 3.125 and 0.375
+        default: numbers.add( random.nextInt( 1 << 20 ) / (double) ( 1 << random.nextInt( 8 ) ) );
+      }
+    }
+    List<NumberFormat> formats = new ArrayList<NumberFormat>();
+    for ( String tag : new String[]{ "en", "sk", "de-CH", "fr", "ar-EG", "hi-IN" } ) {
+      formats.add( NumberFormat.getInstance( Locale.forLanguageTag( tag ) ) );
+    }
+    for ( String pattern : new String[]{ "0.000", "#,###.##", "#,##0.#", "#", "0000.0#", "#,####.000000###", "#.#" } ) {
+      for ( RoundingMode mode : new RoundingMode[]{ RoundingMode.HALF_EVEN, RoundingMode.HALF_UP,
+          RoundingMode.HALF_DOWN, RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR } ) {
+        DecimalFormat format = new DecimalFormat( pattern, DecimalFormatSymbols.getInstance( Locale.US ) );
+        format.setRoundingMode( mode );
+        formats.add( format );
+      }
+    }
+    DecimalFormat alwaysShown = new DecimalFormat( "#,##0.##" );
+    alwaysShown.setDecimalSeparatorAlwaysShown( true );
+    formats.add( alwaysShown );
+
+    int rendered = 0;
+    for ( NumberFormat format : formats ) {
+      DecimalRenderer renderer = DecimalRenderer.of( format );
+      String name = format instanceof DecimalFormat
+        ? ( (DecimalFormat) format ).toPattern() + " " + format.getRoundingMode() : format.toString();
+      for ( double number : numbers ) {
+        StringBuilder out = new StringBuilder( "x" );
+        long scaled = renderer.render( number, out );
+        if ( scaled < 0 ) {
+          assertEquals( out.toString(), "x" );
+          continue;
+        }
+        rendered++;
+        String expected = format.format( number );
+        assertEquals( out.substring( 1 ), expected, name + " " + number );
+        double shown = scaled / pow( 10, format.getMaximumFractionDigits() );
+        assertEquals( renderer.isOne( scaled ), shown == 1.0, name + " " + number );
+        assertEquals( ByteSizeFormats.isOne( number, format ), shown == 1.0, name + " " + number );
+      }
+    }
+    assertTrue( rendered > formats.size() * numbers.size() * 9 / 10 );
+  }
+
+  @Test
+  public void testDecimalRendererDeclines() {
+    assertEquals( DecimalRenderer.of( NumberFormat.getPercentInstance( Locale.US ) ), null );
+    assertEquals( DecimalRenderer.of( new DecimalFormat( "0.0E0" ) ), null );
+    assertEquals( DecimalRenderer.of( new DecimalFormat( "0.0 'x'" ) ), null );
+    assertEquals( DecimalRenderer.of( new DecimalFormat( "0.0000000000" ) ), null );
+  }
+
+  /**
+   * 0.95 with one fraction digit is written "0.9" (half-even on the binary value
+   * just below 0.95), so the unit word must be plural.
+   */
+  @Test
+  public void testSingularFollowsRenderedDigits() {
+    ByteSizeFormat format = new ByteSizeFormatBuilder()
+      .locale( Locale.US ).numberFormat( new DecimalFormat( "#,##0.#" ) ).build();
+    assertEquals( format.format( byteSize( 0.95, MB ), MB, WordLength.FULL ), "0.9 megabytes" );
+    assertEquals( format.format( byteSize( 1.04, MB ), MB, WordLength.FULL ), "1 megabyte" );
+  }
+
+  /**
+   * Formats the renderer declines choose the unit word by the same rule, in
+   * the format's rounding mode: 0.5 is written "0" by half-even, and 1.5 is
+   * written "1" by half-down.
+   */
+  @Test
+  public void testSingularFollowsRoundingModeWithoutRenderer() {
+    DecimalFormat halfEven = new DecimalFormat( "0" );
+    DecimalFormat halfDown = new DecimalFormat( "0" );
+    halfDown.setRoundingMode( RoundingMode.HALF_DOWN );
+    assertBothPaths( halfEven, 0.5, "0 kilobytes" );
+    assertBothPaths( halfDown, 1.5, "1 kilobyte" );
+    assertBothPaths( halfEven, 1.5, "2 kilobytes" );
+
+    // the word follows how the number is written, not how it would be parsed
+    DecimalFormat integerParse = new DecimalFormat( "0.#" );
+    integerParse.setParseIntegerOnly( true );
+    assertBothPaths( integerParse, 1.4, "1.4 kilobytes" );
+  }
+
+  private static void assertBothPaths( DecimalFormat numberFormat, double kilobytes, String expected ) {
+    ResourceBundle resourceBundle = ByteSizeFormats.getResourceBundle( Locale.US );
+    ByteSizeFormat format = new ByteSizeFormatBuilder().locale( Locale.US ).numberFormat( numberFormat ).build();
+    assertEquals( format.format( byteSize( kilobytes, kB ), kB, WordLength.FULL ), expected );
+    StringBuilder out = new StringBuilder();
+    ByteSizeFormats.formatTo( kilobytes, kB, numberFormat, null, WordLength.FULL,
+      UnitVocabulary.compile( ByteSizeUnits.getAllDefaultUnits(), resourceBundle ), out );
+    assertEquals( out.toString(), expected );
+    assertEquals( ByteSizeFormats.format( byteSize( kilobytes, kB ), kB, numberFormat, WordLength.FULL, resourceBundle ),
+      expected );
+  }
+
+  /**
+   * A subclass whose resource bundle changes from call to call (here, per thread
+   * or per request in real use) formats and parses with the current words.
+   */
+  @Test
+  public void testAbstractFormatFollowsChangingBundle() throws ParseException {
+    final Locale[] locale = { Locale.US };
+    ByteSizeFormat format = new AbstractByteSizeFormat() {
+      protected NumberFormat getNumberFormat() {
+        return NumberFormat.getInstance( locale[0] );
+      }
+      protected ResourceBundle getResourceBundle() {
+        return ByteSizeFormats.getResourceBundle( locale[0] );
+      }
+      protected Collection<ByteSizeUnit> getUnits() {
+        return ByteSizeUnits.getAllDefaultUnits();
+      }
+      protected ByteSizeUnitSystem getUnitSystem() {
+        return ByteSizeUnits.SI;
+      }
+    };
+    assertEquals( format.format( byteSize( 1 ), WordLength.FULL ), "1 byte" );
+    locale[0] = new Locale( "sk" );
+    assertEquals( format.format( byteSize( 1 ), WordLength.FULL ), "1 bajt" );
+    assertEquals( format.parse( "1 bajt" ), byteSize( 1 ) );
+  }
+
+  @Test
+  public void testAbstractFormatFollowsChangingUnitSystem() {
+    final ByteSizeUnitSystem[] unitSystem = { ByteSizeUnits.SI };
+    ByteSizeFormat format = new AbstractByteSizeFormat() {
+      protected NumberFormat getNumberFormat() {
+        return NumberFormat.getInstance( Locale.US );
+      }
+      protected ResourceBundle getResourceBundle() {
+        return ByteSizeFormats.getResourceBundle( Locale.US );
+      }
+      protected Collection<ByteSizeUnit> getUnits() {
+        return ByteSizeUnits.getAllDefaultUnits();
+      }
+      protected ByteSizeUnitSystem getUnitSystem() {
+        return unitSystem[0];
+      }
+    };
+    assertEquals( format.format( byteSize( 2048 ), WordLength.ABBREVIATION ), "2.048 kB" );
+    unitSystem[0] = ByteSizeUnits.IEC;
+    assertEquals( format.format( byteSize( 2048 ), WordLength.ABBREVIATION ), "2 KiB" );
+  }
+
+  /**
+   * Each call returns a new list, which the caller may change.
+   */
+  @Test
+  public void testUnitSystemListsAreCopies() {
+    List<ByteSizeUnit> units = ByteSizeUnits.SI.units();
+    units.set( 0, KiB );
+    assertEquals( ByteSizeUnits.SI.units().get( 0 ), BYTE );
+  }
+
 }
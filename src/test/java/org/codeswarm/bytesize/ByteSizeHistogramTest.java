@@ -0,0 +1,108 @@
+package org.codeswarm.bytesize;
+
+import org.testng.annotations.Test;
+
+import java.text.DecimalFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.codeswarm.bytesize.ByteSizeFormat.WordLength.ABBREVIATION;
+import static org.codeswarm.bytesize.ByteSizeUnits.*;
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ByteSizeHistogramTest {
+
+  @Test
+  public void testBuckets() {
+    ByteSizeHistogram histogram = new ByteSizeHistogram( 3 );
+    long previousHighest = -1;
+    int last = histogram.bucketIndex( Long.MAX_VALUE );
+    for ( int i = 0; i <= last; i++ ) {
+      long lowest = histogram.lowestValue( i ), highest = histogram.highestValue( i );
+      assertEquals( lowest, previousHighest + 1, "bucket " + i );
+      assertEquals( histogram.bucketIndex( lowest ), i );
+      assertEquals( histogram.bucketIndex( highest ), i );
+      previousHighest = highest;
+    }
+    assertEquals( previousHighest, Long.MAX_VALUE );
+  }
+
+  /**
+   * Every power of two, and so every IEC unit, starts a bucket.
+   */
+  @Test
+  public void testIecBoundaries() {
+    ByteSizeHistogram histogram = new ByteSizeHistogram();
+    for ( int bits = 1; bits < 63; bits++ ) {
+      long power = 1L << bits;
+      assertEquals( histogram.lowestValue( histogram.bucketIndex( power ) ), power );
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    ByteSizeHistogram histogram = new ByteSizeHistogram();
+    assertEquals( histogram.percentile( 50 ), byteSize( 0 ) );
+    for ( int i = 1; i <= 1000; i++ ) {
+      histogram.record( byteSize( i, KiB ) );
+    }
+    assertEquals( histogram.count(), 1000 );
+    assertPercentile( histogram.percentile( 50 ), 500 * 1024 );
+    assertPercentile( histogram.percentile( 99 ), 990 * 1024 );
+    assertPercentile( histogram.max(), 1000 * 1024 );
+    assertEquals( histogram.percentile( 0 ), histogram.percentile( 0.01 ) );
+
+    histogram.reset();
+    assertEquals( histogram.count(), 0 );
+  }
+
+  private static void assertPercentile( ExactByteSize actual, long expected ) {
+    long n = actual.numberOfBytes().longValue();
+    assertTrue( n >= expected && n < expected * ( 1 + 1.0 / 32 ), actual + " vs " + expected );
+  }
+
+  @Test
+  public void testSummary() {
+    ByteSizeHistogram histogram = new ByteSizeHistogram();
+    histogram.record( 1023 );
+    histogram.record( 1024 );
+    histogram.record( byteSize( 3, MiB ) );
+    ByteSizeFormat format = new ByteSizeFormatBuilder()
+      .locale( Locale.ENGLISH )
+      .numberFormat( new DecimalFormat( "#,###.##" ) )
+      .build();
+    assertEquals( histogram.summary( format, ByteSizeUnits.IEC, ABBREVIATION ),
+      "count: 3\n"
+      + "p50: 1.03 KiB\n"
+      + "p90: 3.06 MiB\n"
+      + "p99: 3.06 MiB\n"
+      + "p99.9: 3.06 MiB\n"
+      + "max: 3.06 MiB\n"
+      + "[0 b, 1 KiB): 1\n"
+      + "[1 KiB, 1 MiB): 1\n"
+      + "[1 MiB, 1 GiB): 1\n" );
+  }
+
+  @Test
+  public void testConcurrentRecording() throws Exception {
+    final ByteSizeHistogram histogram = new ByteSizeHistogram();
+    Thread[] threads = new Thread[4];
+    for ( int t = 0; t < threads.length; t++ ) {
+      final long seed = t;
+      threads[t] = new Thread( () -> {
+        Random random = new Random( seed );
+        for ( int i = 0; i < 100000; i++ ) {
+          histogram.record( random.nextInt( 1 << 20 ) );
+        }
+      } );
+      threads[t].start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    assertEquals( histogram.count(), 400000 );
+  }
+
+}
@@ -0,0 +1,71 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Locale;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ByteSizeInstrumentationTest {
+
+  @AfterMethod( alwaysRun = true )
+  public void removeListener() {
+    ByteSizeInstrumentation.setListener( null );
+  }
+
+  @Test
+  public void testMetrics() throws ParseException {
+    ByteSizeFormat us = new ByteSizeFormatBuilder().locale( Locale.US ).build();
+    ByteSizeFormat slovak = new ByteSizeFormatBuilder().locale( new Locale( "sk" ) ).build();
+    ByteSizeFormatMetrics metrics = new ByteSizeFormatMetrics();
+    ByteSizeInstrumentation.setListener( metrics );
+
+    us.format( byteSize( 1500 ), WordLength.FULL );
+    us.formatTo( byteSize( 3, ByteSizeUnits.MB ), WordLength.ABBREVIATION, new StringBuilder() );
+    us.parse( "12 kB" );
+    slovak.parse( "1 bajt" );
+    try {
+      us.parse( "12 parsecs" );
+      fail();
+    } catch ( ParseException expected ) {
+    }
+    ByteSizeFormats.parse( "5 MB", NumberFormat.getInstance( Locale.US ),
+      ByteSizeUnits.getAllDefaultUnits(), ByteSizeFormats.getResourceBundle( Locale.US ) );
+
+    assertEquals( metrics.formatCount(), 2 );
+    assertEquals( metrics.parseCount(), 4 );
+    assertEquals( metrics.parseFailureCount(), 1 );
+    assertTrue( metrics.parseNanos() > 0 );
+    assertEquals( metrics.callsByLocale().get( Locale.US ), Long.valueOf( 4 ) );
+    assertEquals( metrics.callsByLocale().get( new Locale( "sk" ) ), Long.valueOf( 1 ) );
+
+    ByteSizeInstrumentation.setListener( null );
+    us.parse( "12 kB" );
+    assertEquals( metrics.parseCount(), 4 );
+  }
+
+  @Test
+  public void testFailureDetails() {
+    final String[] failure = new String[1];
+    final int[] offset = new int[1];
+    ByteSizeInstrumentation.setListener( new ByteSizeFormatListener() {
+      public void parseFailed( Locale locale, String text, int errorOffset, long nanos ) {
+        failure[0] = text;
+        offset[0] = errorOffset;
+      }
+    } );
+    ByteSizeFormat format = new ByteSizeFormatBuilder().locale( Locale.US ).build();
+    String line = "size=12 x4 kB;";
+    assertEquals( format.parse( line, 5, line.length() - 1, new java.text.ParsePosition( 0 ) ), null );
+    assertEquals( failure[0], "12 x4 kB" );
+    assertEquals( offset[0], 2 );
+  }
+
+}
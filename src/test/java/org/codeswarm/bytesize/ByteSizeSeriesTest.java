@@ -0,0 +1,163 @@
+package org.codeswarm.bytesize;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ByteSizeSeriesTest {
+
+  Path file;
+
+  @BeforeMethod
+  public void createFile() throws IOException {
+    file = Files.createTempFile( "sizes", ".series" );
+    Files.delete( file );
+  }
+
+  @AfterMethod( alwaysRun = true )
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists( file );
+  }
+
+  static long[] randomSeries( Random random, int length ) {
+    long[] series = new long[length];
+    long n = 1 << 20;
+    for ( int i = 0; i < length; i++ ) {
+      switch ( random.nextInt( 20 ) ) {
+        case 0:
+          n = random.nextLong();
+          break;
+        case 1:
+          n = Long.MAX_VALUE - random.nextInt( 10 );
+          break;
+        default:
+          n += random.nextInt( 2001 ) - 1000;
+      }
+      series[i] = n;
+    }
+    return series;
+  }
+
+  /**
+   * Small blocks, written in several sessions and mapped in several segments,
+   * give the same answers as the array they were written from, including sums
+   * that overflow a long.
+   */
+  @Test
+  public void testRangeQueries() throws IOException {
+    Random random = new Random( 25 );
+    long[] series = randomSeries( random, 5000 );
+    try ( ByteSizeSeriesWriter writer = new ByteSizeSeriesWriter( file, 64 ) ) {
+      for ( int i = 0; i < 3000; i++ ) {
+        writer.append( series[i] );
+      }
+    }
+    try ( ByteSizeSeriesWriter writer = new ByteSizeSeriesWriter( file, 64 ) ) {
+      assertEquals( writer.size(), 3000 );
+      for ( int i = 3000; i < series.length; i++ ) {
+        writer.append( byteSize( series[i] ) );
+      }
+    }
+    ByteSizeSeriesReader reader = new ByteSizeSeriesReader( file, 4096 );
+    assertEquals( reader.size(), series.length );
+
+    long[] all = new long[series.length];
+    reader.read( 0, all );
+    assertEquals( all, series );
+
+    for ( int k = 0; k < 500; k++ ) {
+      int from = random.nextInt( series.length + 1 );
+      int to = from + random.nextInt( series.length + 1 - from );
+      BigInteger sum = BigInteger.ZERO;
+      long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+      for ( int i = from; i < to; i++ ) {
+        sum = sum.add( BigInteger.valueOf( series[i] ) );
+        min = Math.min( min, series[i] );
+        max = Math.max( max, series[i] );
+      }
+      assertEquals( reader.sum( from, to ), byteSize( sum ) );
+      if ( from < to ) {
+        assertEquals( reader.min( from, to ), byteSize( min ) );
+        assertEquals( reader.max( from, to ), byteSize( max ) );
+        assertEquals( reader.get( from ), byteSize( series[from] ) );
+      }
+    }
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    new ByteSizeSeriesWriter( file ).close();
+    ByteSizeSeriesReader reader = new ByteSizeSeriesReader( file );
+    assertEquals( reader.size(), 0 );
+    assertEquals( reader.sum(), byteSize( 0 ) );
+    try {
+      reader.max( 0, 0 );
+      fail();
+    } catch ( NoSuchElementException expected ) {
+    }
+    try {
+      reader.get( 0 );
+      fail();
+    } catch ( IndexOutOfBoundsException expected ) {
+    }
+  }
+
+  /**
+   * Similar sizes take about a byte each.
+   */
+  @Test
+  public void testCompact() throws IOException {
+    try ( ByteSizeSeriesWriter writer = new ByteSizeSeriesWriter( file ) ) {
+      long n = 5L << 30;
+      for ( int i = 0; i < 100000; i++ ) {
+        writer.append( n += i % 7 - 3 );
+      }
+    }
+    assertTrue( Files.size( file ) < 100000 + 25 * ( ByteSizeSeriesWriter.BLOCK_HEADER_SIZE + 5 ) + 8 );
+  }
+
+  /**
+   * A block cut short by the end of the file is not read, and is replaced by the next writer.
+   */
+  @Test
+  public void testPartialBlock() throws IOException {
+    try ( ByteSizeSeriesWriter writer = new ByteSizeSeriesWriter( file, 10 ) ) {
+      for ( int i = 0; i < 25; i++ ) {
+        writer.append( i );
+      }
+    }
+    try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.WRITE ) ) {
+      channel.truncate( channel.size() - 2 );
+    }
+    assertEquals( new ByteSizeSeriesReader( file ).size(), 20 );
+    try ( ByteSizeSeriesWriter writer = new ByteSizeSeriesWriter( file, 10 ) ) {
+      writer.append( 100 );
+    }
+    ByteSizeSeriesReader reader = new ByteSizeSeriesReader( file );
+    assertEquals( reader.size(), 21 );
+    assertEquals( reader.sum(), byteSize( 190 + 100 ) );
+    assertEquals( reader.max( 0, 21 ), byteSize( 100 ) );
+  }
+
+  @Test( expectedExceptions = IOException.class )
+  public void testNotASeriesFile() throws IOException {
+    Files.write( file, "size\n12 kB\n".getBytes( StandardCharsets.US_ASCII ) );
+    new ByteSizeSeriesReader( file );
+  }
+
+}
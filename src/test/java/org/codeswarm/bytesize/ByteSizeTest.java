@@ -2,10 +2,17 @@ package org.codeswarm.bytesize;
 
 import org.testng.annotations.Test;
 
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
 import static java.lang.Math.*;
 import static org.codeswarm.bytesize.ByteSizeUnits.*;
 import static org.codeswarm.bytesize.ByteSizes.byteSize;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 public class ByteSizeTest {
 
@@ -53,4 +60,155 @@ public class ByteSizeTest {
     assertEquals( round( orderOfMagnitude ), 80 + 77 - 20 );
   }
 
+  /**
+   * 5 ZB is too large for a long, so it must be promoted, not wrapped.
+   */
+  @Test
+  public void testOverflowPromotesToBigInteger() {
+    ExactByteSize bs = byteSize( 5, ZB );
+    assertEquals( bs.numberOfBytes(), BigInteger.TEN.pow( 21 ).multiply( BigInteger.valueOf( 5 ) ) );
+  }
+
+  /**
+   * A product of a unit too large for a long is long-backed when it fits.
+   */
+  @Test
+  public void testSmallMultipleOfLargeUnitIsLong() {
+    assertSame( byteSize( 0, ZB ), byteSize( 0 ) );
+    assertTrue( byteSize( -1, YiB ).times( 0 ) instanceof LongByteSize );
+    assertTrue( byteSize( 1, ZB ).times( 0 ) instanceof LongByteSize );
+  }
+
+  @Test
+  public void testLongMaxTimesKilobyte() {
+    ExactByteSize bs = byteSize( Long.MAX_VALUE, kB );
+    BigInteger expected = BigInteger.valueOf( Long.MAX_VALUE ).multiply( BigInteger.valueOf( 1000 ) );
+    assertEquals( bs.numberOfBytes(), expected );
+  }
+
+  /**
+   * The long-backed and BigInteger-backed forms compare by value.
+   */
+  @Test
+  public void testCompareAcrossRepresentations() {
+    ExactByteSize small = byteSize( Long.MAX_VALUE );
+    ExactByteSize large = byteSize( 1, YB );
+    ExactByteSize negativeLarge = byteSize( -1, YB );
+    assertTrue( small.compareTo( large ) < 0 );
+    assertTrue( large.compareTo( small ) > 0 );
+    assertTrue( negativeLarge.compareTo( small ) < 0 );
+    assertTrue( small.compareTo( negativeLarge ) > 0 );
+    assertEquals( byteSize( 3, EB ).compareTo( byteSize( BigInteger.TEN.pow( 18 ).multiply( BigInteger.valueOf( 3 ) ) ) ), 0 );
+  }
+
+  /**
+   * A BigInteger that fits in a long yields the same object as the long factory.
+   */
+  @Test
+  public void testBigIntegerFactoryNormalizes() {
+    assertEquals( byteSize( BigInteger.valueOf( 4096 ) ), byteSize( 4096 ) );
+    assertEquals( byteSize( BigInteger.valueOf( 4 ), KiB ), byteSize( 4096 ) );
+  }
+
+  /**
+   * Units, long-backed and BigInteger-backed sizes are equal by value.
+   */
+  @Test
+  public void testValueEquality() {
+    assertEquals( byteSize( 1000 ), kB );
+    assertEquals( kB, byteSize( 1000 ) );
+    assertEquals( kB.hashCode(), byteSize( 1000 ).hashCode() );
+    assertEquals( BYTE, byteSize( 1 ) );
+    assertEquals( byteSize( 1 ), BYTE );
+    assertEquals( BYTE.hashCode(), byteSize( 1 ).hashCode() );
+    assertEquals( byteSize( 1024, ZiB ), byteSize( 1, YiB ) );
+    assertEquals( byteSize( 1024, ZiB ).hashCode(), YiB.hashCode() );
+    assertNotEquals( kB, KiB );
+  }
+
+  @Test
+  public void testMapKeys() {
+    Map<ExactByteSize, String> map = new HashMap<ExactByteSize, String>();
+    map.put( MiB, "mebibyte" );
+    map.put( byteSize( 1, GB ), "gigabyte" );
+    assertEquals( map.get( byteSize( 1024 * 1024 ) ), "mebibyte" );
+    assertEquals( map.get( GB ), "gigabyte" );
+  }
+
+  @Test
+  public void testCommonValuesAreShared() {
+    assertSame( byteSize( 0 ), byteSize( 0 ) );
+    assertSame( byteSize( 1000 ), byteSize( BigInteger.valueOf( 1000 ) ) );
+    assertSame( byteSize( 4, KiB ), byteSize( 4096 ) );
+    assertSame( byteSize( 1L << 40 ), byteSize( 1, TiB ) );
+    assertSame( byteSize( 1, EB ), byteSize( 1000000000000000000L ) );
+  }
+
+  @Test
+  public void testExactArithmetic() {
+    assertEquals( byteSize( 3, GiB ).plus( byteSize( 512, MiB ) ), byteSize( 3584, MiB ) );
+    assertEquals( byteSize( 1, GB ).minus( byteSize( 1, GiB ) ), byteSize( 1000000000L - 1073741824L ) );
+    assertEquals( KiB.times( 3 ), byteSize( 3072 ) );
+    assertEquals( byteSize( 10 ).dividedBy( 3 ), byteSize( 3 ) );
+    assertEquals( byteSize( -10 ).dividedBy( 3 ), byteSize( -3 ) );
+    assertSame( kB.min( KiB ), kB );
+    assertSame( kB.max( KiB ), KiB );
+  }
+
+  /**
+   * Results that overflow a long are promoted, and results that fit again are long-backed.
+   */
+  @Test
+  public void testExactArithmeticOverflow() {
+    ExactByteSize max = byteSize( Long.MAX_VALUE );
+    ExactByteSize sum = max.plus( max );
+    assertEquals( sum.numberOfBytes(), BigInteger.valueOf( Long.MAX_VALUE ).shiftLeft( 1 ) );
+    assertEquals( sum.minus( max ), max );
+    assertEquals( byteSize( Long.MIN_VALUE ).minus( byteSize( 1 ) ).numberOfBytes(),
+      BigInteger.valueOf( Long.MIN_VALUE ).subtract( BigInteger.ONE ) );
+    assertEquals( byteSize( Long.MIN_VALUE ).dividedBy( -1 ).numberOfBytes(),
+      BigInteger.valueOf( Long.MIN_VALUE ).negate() );
+    assertEquals( YB.dividedBy( 1000000 ), EB );
+  }
+
+  @Test
+  public void testApproximateArithmetic() {
+    ByteSize half = byteSize( 0.5, MiB );
+    ByteSize sum = half.plus( byteSize( 512, KiB ) );
+    assertEquals( sum.numberOfBytes( MiB ), 1.0 );
+    assertEquals( half.times( 3 ).numberOfBytes( MiB ), 1.5 );
+    assertEquals( half.dividedBy( 2 ).numberOfBytes( KiB ), 256.0 );
+    // 49 * (1 / 49.0) is 0.9999999999999999
+    assertEquals( byteSize( 49.0 ).dividedBy( 49 ).numberOfBytes( BYTE ), 1.0 );
+    for ( int divisor = 1; divisor < 100; divisor++ ) {
+      assertEquals( half.dividedBy( divisor ).numberOfBytes( MiB ), 0.5 / divisor );
+    }
+    assertEquals( byteSize( 2048 ).minus( half ).numberOfBytes( BYTE ), 2048.0 - 524288.0 );
+    assertSame( half.max( KiB ), half );
+    assertTrue( KiB.plus( (ByteSize) KiB ) instanceof ExactByteSize );
+  }
+
+  /**
+   * Conversions between default units give the same doubles as dividing the
+   * units' BigIntegers, and units that are not defaults still convert.
+   */
+  @Test
+  public void testUnitRatios() {
+    for ( ByteSizeUnit from : getAllDefaultUnits() ) {
+      for ( ByteSizeUnit to : getAllDefaultUnits() ) {
+        double expected = from.numberOfBytes().doubleValue() / to.numberOfBytes().doubleValue();
+        assertEquals( from.numberOfBytes( to ), expected, from + " in " + to );
+        assertEquals( byteSize( 1.5, from ).numberOfBytes( to ), 1.5 * expected, from + " in " + to );
+      }
+      ExactByteSize sameSize = byteSize( from.numberOfBytes() );
+      assertEquals( byteSize( 3.0, from ).numberOfBytes( sameSize ), 3.0 );
+      assertEquals( byteSize( 3.0, sameSize ), byteSize( 3.0, from ) );
+      assertEquals( sameSize.hashCode(), from.hashCode() );
+    }
+    ExactByteSize sector = byteSize( 512 );
+    assertEquals( byteSize( 3, KiB ).numberOfBytes( sector ), 6.0 );
+    assertEquals( byteSize( 0.5, MiB ).numberOfBytes( sector ), 1024.0 );
+    assertEquals( byteSize( 2.0, sector ).numberOfBytes( KiB ), 1.0 );
+  }
+
 }
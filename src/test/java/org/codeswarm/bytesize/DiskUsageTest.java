@@ -0,0 +1,150 @@
+package org.codeswarm.bytesize;
+
+import org.codeswarm.bytesize.ByteSizeFormat.WordLength;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.codeswarm.bytesize.ByteSizes.byteSize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class DiskUsageTest {
+
+  private Path root;
+  private long expectedTotal;
+  private int expectedFiles;
+
+  /**
+   * Ten directories of ten files each, in two levels, plus one large file;
+   * file {@code j} of directory {@code i} holds {@code 100 * i + j} bytes.
+   */
+  @BeforeClass
+  public void createTree() throws IOException {
+    root = Files.createTempDirectory( "disk-usage" );
+    for ( int i = 0; i < 10; i++ ) {
+      Path directory = root.resolve( "d" + ( i % 2 ) ).resolve( "d" + i );
+      Files.createDirectories( directory );
+      for ( int j = 0; j < 10; j++ ) {
+        write( directory.resolve( "f" + j ), 100 * i + j );
+      }
+    }
+    write( root.resolve( "d1" ).resolve( "big" ), 5001 );
+    Files.createDirectories( root.resolve( "empty" ) );
+  }
+
+  private void write( Path file, int size ) throws IOException {
+    Files.write( file, new byte[size] );
+    expectedTotal += size;
+    expectedFiles++;
+  }
+
+  @AfterClass( alwaysRun = true )
+  public void deleteTree() throws IOException {
+    Files.walkFileTree( root, new SimpleFileVisitor<Path>() {
+      public FileVisitResult visitFile( Path file, BasicFileAttributes attributes ) throws IOException {
+        Files.delete( file );
+        return FileVisitResult.CONTINUE;
+      }
+      public FileVisitResult postVisitDirectory( Path directory, IOException e ) throws IOException {
+        Files.delete( directory );
+        return FileVisitResult.CONTINUE;
+      }
+    } );
+  }
+
+  @Test
+  public void testTotals() throws IOException {
+    ForkJoinPool pool = new ForkJoinPool( 4 );
+    try {
+      DiskUsage usage = DiskUsage.scan( root, 3, pool );
+      assertEquals( usage.total(), byteSize( expectedTotal ) );
+      assertEquals( usage.fileCount(), expectedFiles );
+      assertEquals( usage.directoryCount(), 1 + 2 + 10 + 1 );
+      assertEquals( usage.failureCount(), 0 );
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testLargest() throws IOException {
+    DiskUsage usage = DiskUsage.scan( root, 3 );
+
+    List<DiskUsage.Entry> files = usage.largestFiles();
+    assertEquals( paths( files ), paths( root.resolve( "d1/big" ), root.resolve( "d1/d9/f9" ), root.resolve( "d1/d9/f8" ) ) );
+    assertEquals( files.get( 0 ).size(), byteSize( 5001 ) );
+    assertEquals( files.get( 1 ).size(), byteSize( 909 ) );
+
+    // d1 holds d1, d3, ..., d9 and the big file
+    long d1 = 5001;
+    for ( int i = 1; i < 10; i += 2 ) {
+      d1 += 1000 * i + 45;
+    }
+    List<DiskUsage.Entry> directories = usage.largestDirectories();
+    assertEquals( paths( directories ), paths( root.resolve( "d1" ), root.resolve( "d0" ), root.resolve( "d1/d9" ) ) );
+    assertEquals( directories.get( 0 ).size(), byteSize( d1 ) );
+    assertEquals( directories.get( 1 ).size(), byteSize( expectedTotal - d1 ) );
+  }
+
+  @Test
+  public void testSummary() throws IOException {
+    DiskUsage usage = DiskUsage.scan( root, 1 );
+    ByteSizeFormat format = new ByteSizeFormatBuilder().locale( Locale.US ).unitSystem( ByteSizeUnits.SI ).build();
+    String summary = usage.summary( format, WordLength.ABBREVIATION );
+    assertEquals( summary,
+      root + ": 50.451 kB in 101 files and 14 directories\n"
+        + "largest directories:\n"
+        + "  30.226 kB  " + root.resolve( "d1" ) + "\n"
+        + "largest files:\n"
+        + "  5.001 kB  " + root.resolve( "d1/big" ) + "\n" );
+  }
+
+  @Test
+  public void testSingleFile() throws IOException {
+    DiskUsage usage = DiskUsage.scan( root.resolve( "d0/d2/f3" ), 5 );
+    assertEquals( usage.total(), byteSize( 203 ) );
+    assertEquals( usage.fileCount(), 1 );
+    assertEquals( usage.largestFiles().size(), 1 );
+    assertTrue( usage.largestDirectories().isEmpty() );
+  }
+
+  @Test
+  public void testMissingRoot() throws IOException {
+    try {
+      DiskUsage.scan( root.resolve( "missing" ), 5 );
+      fail();
+    } catch ( NoSuchFileException expected ) {
+    }
+  }
+
+  private static List<Path> paths( List<DiskUsage.Entry> entries ) {
+    List<Path> paths = new ArrayList<Path>();
+    for ( DiskUsage.Entry entry : entries ) {
+      paths.add( entry.path() );
+    }
+    return paths;
+  }
+
+  private static List<Path> paths( Path... paths ) {
+    List<Path> list = new ArrayList<Path>();
+    for ( Path path : paths ) {
+      list.add( path );
+    }
+    return list;
+  }
+
+}
@@ -0,0 +1,62 @@
+package org.codeswarm.bytesize;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Uses {@code jdk.jfr} directly, so it is only compiled where that is present
+ * (see the {@code flight-recorder} profile in the pom).
+ */
+public class FlightRecorderListenerTest {
+
+  @AfterMethod( alwaysRun = true )
+  public void removeListener() {
+    ByteSizeInstrumentation.setListener( null );
+  }
+
+  @Test
+  public void testFlightRecorderEvents() throws Exception {
+    assertTrue( ByteSizeInstrumentation.isFlightRecorderAvailable() );
+    ByteSizeFormat format = new ByteSizeFormatBuilder().locale( Locale.US ).build();
+    Path file = Files.createTempFile( "bytesize", ".jfr" );
+    try {
+      try ( Recording recording = new Recording() ) {
+        recording.enable( "org.codeswarm.bytesize.Parse" );
+        recording.start();
+        ByteSizeInstrumentation.setListener(
+          ByteSizeInstrumentation.flightRecorderListener( 1, TimeUnit.HOURS ) );
+        format.parse( "1 kB" );
+        try {
+          format.parse( "1 kiloparsec" );
+          fail();
+        } catch ( ParseException expected ) {
+        }
+        recording.stop();
+        recording.dump( file );
+      }
+      List<RecordedEvent> events = RecordingFile.readAllEvents( file );
+      assertEquals( events.size(), 1 );
+      RecordedEvent event = events.get( 0 );
+      assertEquals( event.getString( "text" ), "1 kiloparsec" );
+      assertEquals( event.getBoolean( "failed" ), true );
+      assertEquals( event.getString( "locale" ), "en-US" );
+    } finally {
+      Files.delete( file );
+    }
+  }
+
+}